@@ -0,0 +1,74 @@
+package com.stocktrading.engine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blocks on a condition until a producer signals. Idle threads use no CPU; every wake-up goes
+ * through the scheduler, so latency is the highest of the strategies.
+ *
+ * Producers count every signal and only take the lock while some thread is waiting. A thread
+ * blocks only if no signal has arrived since its previous wait, checked under the lock, so a
+ * signal that lands between its empty poll and the wait is not lost. The timeout is a backstop.
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong signals = new AtomicLong();   // Every signal so far
+    private final ThreadLocal<long[]> seenSignals = ThreadLocal.withInitial(() -> new long[] {-1}); // Per waiter
+    private final long timeoutNanos;
+
+    public BlockingWaitStrategy() {
+        this(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param timeoutNanos the longest a thread blocks before polling again
+     */
+    public BlockingWaitStrategy(long timeoutNanos) {
+        if (timeoutNanos <= 0) {
+            throw new IllegalArgumentException("Invalid wait timeout: " + timeoutNanos);
+        }
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    @Override
+    public void idle(int idleCount) {
+        long[] seen = seenSignals.get();
+        lock.lock();
+        try {
+            // Registered before reading the count, so a later signal sees the waiter and takes the lock
+            waiters.incrementAndGet();
+            long current = signals.get();
+            if (current == seen[0]) {
+                workAvailable.awaitNanos(timeoutNanos);
+            }
+            seen[0] = current; // Signals after this read make the next call return at once
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void signal() {
+        signals.incrementAndGet();
+        if (waiters.get() == 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
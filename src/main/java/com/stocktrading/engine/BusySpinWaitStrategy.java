@@ -0,0 +1,13 @@
+package com.stocktrading.engine;
+
+/**
+ * Never gives up the core. Lowest wake-up latency, burns a full core per waiting thread,
+ * so use it only with a core reserved for each thread.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+
+    @Override
+    public void idle(int idleCount) {
+        Thread.onSpinWait();
+    }
+}
@@ -0,0 +1,73 @@
+package com.stocktrading.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A Journal writing fixed-size binary records to an append-only file.
+ * Records are gathered in a direct buffer and written once per batch, so the cost of a
+ * write (and of the optional fsync) is shared by every command in the batch.
+ */
+public class FileJournal implements Journal, AutoCloseable {
+    /** Bytes per record: sequence, order id, price, type, symbol, quantity, side. */
+    public static final int RECORD_SIZE = 8 + 8 + 8 + 4 + 4 + 4 + 4;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean sync;
+
+    /**
+     * Constructor
+     *
+     * @param path the journal file, created if missing and appended to otherwise
+     * @param bufferRecords records buffered before a write is forced mid-batch
+     * @param sync true to fsync on every flush
+     * @throws IOException if the file cannot be opened
+     */
+    public FileJournal(Path path, int bufferRecords, boolean sync) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.buffer = ByteBuffer.allocateDirect(bufferRecords * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.sync = sync;
+    }
+
+    @Override
+    public void append(PipelineEvent event) throws IOException {
+        if (buffer.remaining() < RECORD_SIZE) {
+            drain();
+        }
+        buffer.putLong(event.sequence)
+                .putLong(event.orderId)
+                .putLong(event.priceTicks)
+                .putInt(event.type)
+                .putInt(event.symbolId)
+                .putInt(event.quantity)
+                .putInt(event.isBuy ? 1 : 0);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,24 @@
+package com.stocktrading.engine;
+
+import java.io.IOException;
+
+/**
+ * Durable log of the commands an OrderPipeline accepts, written before they are matched.
+ */
+public interface Journal {
+
+    /**
+     * Appends one command. It need not be durable until the next flush.
+     *
+     * @param event the command
+     * @throws IOException if the journal cannot be written
+     */
+    void append(PipelineEvent event) throws IOException;
+
+    /**
+     * Makes every appended command durable. Called once per batch.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,226 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.ExecutionReport;
+import com.stocktrading.structure.MpscRing;
+import com.stocktrading.structure.OrderListFactory;
+import com.stocktrading.util.SymbolDirectory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One matcher thread of a ShardedTradingEngine.
+ * It is the only thread that changes the books of its symbols; other threads hand it
+ * commands through its inbound ring, so the CAS operations inside its engine never contend.
+ */
+class MatchingShard implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(MatchingShard.class);
+    private static final int BATCH = 256;               // Commands taken per drain
+
+    private final int index;
+    private final TradingEngine engine;
+    private final MpscRing<ShardCommand> inbound;
+    private final Consumer<ShardCommand> executor = this::execute;
+    private final WaitStrategy waitStrategy;
+    private final Thread thread;
+    private final List<SweepReport> sweeping = new ArrayList<>(); // Reports of orders still matching over slices
+
+    MatchingShard(int index, OrderListFactory listFactory, SymbolDirectory symbols, int ringCapacity,
+                  WaitStrategy waitStrategy) {
+        this.index = index;
+        this.waitStrategy = waitStrategy;
+        this.engine = new TradingEngine(listFactory, symbols, true);
+        this.inbound = new MpscRing<>(ringCapacity, ShardCommand::new);
+        this.thread = new Thread(this, "matcher-" + index);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    TradingEngine engine() {
+        return engine;
+    }
+
+    /**
+     * Queues a new order. The id is derived from the ring sequence, so no extra counter is touched.
+     *
+     * @return the id the order will carry, or TradingEngine.REJECTED if the shard is stopped
+     */
+    long submitAdd(boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        return submitAdd(isBuy, symbolId, quantity, priceTicks, null);
+    }
+
+    /**
+     * Queues a new order whose report is completed on this shard's thread once its matching pass
+     * is over, after the last slice if it sweeps more than one.
+     *
+     * @return the id the order will carry, or TradingEngine.REJECTED if the shard is stopped
+     */
+    long submitAdd(boolean isBuy, int symbolId, int quantity, long priceTicks,
+                   CompletableFuture<ExecutionReport> report) {
+        long sequence = inbound.claim();
+        if (sequence < 0) {
+            logger.warn("Invalid order: shard {} is stopped", index);
+            return TradingEngine.REJECTED;
+        }
+        long orderId = ShardedTradingEngine.orderId(sequence, index);
+        ShardCommand command = inbound.get(sequence);
+        command.type = ShardCommand.ADD;
+        command.orderId = orderId;
+        command.isBuy = isBuy;
+        command.symbolId = symbolId;
+        command.quantity = quantity;
+        command.priceTicks = priceTicks;
+        command.report = report;
+        inbound.publish(sequence);
+        waitStrategy.signal();
+        return orderId;
+    }
+
+    // Returns false if the shard is stopped
+    boolean submitCancel(long orderId) {
+        long sequence = inbound.claim();
+        if (sequence < 0) {
+            return false;
+        }
+        ShardCommand command = inbound.get(sequence);
+        command.type = ShardCommand.CANCEL;
+        command.orderId = orderId;
+        command.report = null;
+        inbound.publish(sequence);
+        waitStrategy.signal();
+        return true;
+    }
+
+    // Returns false if the shard is stopped
+    boolean submitAmend(long orderId, int quantity, long priceTicks) {
+        long sequence = inbound.claim();
+        if (sequence < 0) {
+            return false;
+        }
+        ShardCommand command = inbound.get(sequence);
+        command.type = ShardCommand.AMEND;
+        command.orderId = orderId;
+        command.report = null;
+        command.quantity = quantity;
+        command.priceTicks = priceTicks;
+        inbound.publish(sequence);
+        waitStrategy.signal();
+        return true;
+    }
+
+    /**
+     * Waits until every command queued before this call has been applied
+     * and no book is left crossed, or the shard has stopped.
+     */
+    void awaitDrained() {
+        long target = inbound.claimedCount();
+        int idle = 0;
+        while ((inbound.consumedCount() < target && !inbound.isDrained()) || engine.hasPendingSlices()) {
+            waitStrategy.idle(idle == Integer.MAX_VALUE ? idle : ++idle);
+        }
+    }
+
+    // Stops the matcher after it has applied every command published so far; later ones are refused.
+    // An interrupt ends the wait early
+    void stop() {
+        inbound.close();
+        waitStrategy.signal(); // Wake an idle matcher so it sees the end
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+        // Keep draining after stop up to the ring's end, published orders are not dropped
+        while (!inbound.isDrained() || engine.hasPendingSlices()) {
+            // New commands first, then one slice of a crossed book, so a long sweep is interleaved
+            // with the shard's other symbols instead of holding the thread
+            int drained = inbound.drain(executor, BATCH);
+            boolean sliced = engine.runPendingSlice();
+            if (sliced && !sweeping.isEmpty()) {
+                completeSweeps(false);
+            }
+            if (drained > 0 || sliced) {
+                idle = 0;
+                waitStrategy.signal(); // A flush may be waiting on this progress
+            } else {
+                waitStrategy.idle(idle == Integer.MAX_VALUE ? idle : ++idle);
+            }
+        }
+        completeSweeps(true); // Nothing is left to slice, so every pass is over
+    }
+
+    private void execute(ShardCommand command) {
+        try {
+            switch (command.type) {
+                case ShardCommand.ADD:
+                    long orderId = engine.addOrder(command.orderId, command.isBuy, command.symbolId,
+                            command.quantity, command.priceTicks);
+                    if (command.report == null) {
+                        break;
+                    }
+                    if (orderId != TradingEngine.REJECTED && engine.getOpenQuantity(orderId) > 0
+                            && engine.isCrossed(command.symbolId)) {
+                        // Still crossed after the first slice, report once the continuations are done
+                        sweeping.add(new SweepReport(orderId, command.symbolId, command.quantity, command.report));
+                    } else {
+                        command.report.complete(engine.report(orderId, command.quantity));
+                    }
+                    break;
+                case ShardCommand.CANCEL:
+                    engine.cancelOrder(command.orderId);
+                    break;
+                case ShardCommand.AMEND:
+                    engine.amendOrder(command.orderId, command.quantity, command.priceTicks);
+                    break;
+                default:
+                    logger.warn("Unknown shard command type {}", command.type);
+            }
+        } catch (RuntimeException e) {
+            // One bad command must not stop the matcher
+            logger.error("Shard {} failed to apply command for order {}", index, command.orderId, e);
+            if (command.report != null) {
+                command.report.completeExceptionally(e);
+            }
+        } finally {
+            command.report = null; // Do not keep the future reachable from the ring
+        }
+    }
+
+    // Only this thread changes the book, so the open quantity is exactly what matching left.
+    // A pass is over once the order is filled or its book is no longer crossed
+    private void completeSweeps(boolean all) {
+        for (int i = sweeping.size() - 1; i >= 0; i--) {
+            SweepReport sweep = sweeping.get(i);
+            if (all || engine.getOpenQuantity(sweep.orderId) == 0 || !engine.isCrossed(sweep.symbolId)) {
+                sweep.report.complete(engine.report(sweep.orderId, sweep.quantity));
+                sweeping.remove(i);
+            }
+        }
+    }
+
+    // An order whose matching pass continues in later slices
+    private static final class SweepReport {
+        private final long orderId;
+        private final int symbolId;
+        private final int quantity;
+        private final CompletableFuture<ExecutionReport> report;
+
+        private SweepReport(long orderId, int symbolId, int quantity, CompletableFuture<ExecutionReport> report) {
+            this.orderId = orderId;
+            this.symbolId = symbolId;
+            this.quantity = quantity;
+            this.report = report;
+        }
+    }
+}
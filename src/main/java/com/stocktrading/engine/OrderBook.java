@@ -1,74 +1,158 @@
 package com.stocktrading.engine;
 
-import com.stocktrading.model.Order;
+import com.stocktrading.structure.ChunkedArray;
+import com.stocktrading.structure.LinkedOrderList;
 import com.stocktrading.structure.OrderList;
-import com.stocktrading.util.TickerHasher;
+import com.stocktrading.structure.OrderListFactory;
+import com.stocktrading.util.SymbolDirectory;
 
 /**
  * Maintains separate buy and sell order lists for each stock.
- * Uses arrays of OrderLists to store orders by ticker hash.
+ * Books are indexed by the symbol id from the SymbolDirectory and created the first time
+ * a symbol is traded, so memory follows the active universe rather than a fixed size.
  */
 public class OrderBook {
-    // Array of order lists for buy orders, indexed by ticker hash
-    private final OrderList[] buyOrders;
+    // Per-symbol books, indexed by symbol id, created on first use
+    private final ChunkedArray<SymbolBook> books;
 
-    // Array of order lists for sell orders, indexed by ticker hash
-    private final OrderList[] sellOrders;
+    // Creates the buy and sell list of each new book
+    private final OrderListFactory listFactory;
+
+    // Ticker to symbol id mapping
+    private final SymbolDirectory symbols;
 
     /**
-     * Creates a new OrderBook with capacity for 1024 ticker symbols.
+     * Creates a new OrderBook.
      */
     public OrderBook() {
-        // Initialize arrays for buy and sell orders
-        buyOrders = new OrderList[1024];
-        sellOrders = new OrderList[1024];
-
-        // Create order lists for each possible ticker
-        for (int i = 0; i < 1024; i++) {
-            buyOrders[i] = new OrderList(true);
-            sellOrders[i] = new OrderList(false);
-        }
+        this(LinkedOrderList::new);
+    }
+
+    /**
+     * Creates a new OrderBook using the given factory for every buy and sell list.
+     *
+     * @param listFactory creates the order list for each side of each ticker
+     */
+    public OrderBook(OrderListFactory listFactory) {
+        this(listFactory, new SymbolDirectory());
+    }
+
+    /**
+     * Creates a new OrderBook over a directory shared with other books,
+     * so the same symbol id means the same ticker in all of them.
+     *
+     * @param listFactory creates the order list for each side of each ticker
+     * @param symbols the shared ticker to symbol id mapping
+     */
+    public OrderBook(OrderListFactory listFactory, SymbolDirectory symbols) {
+        this.listFactory = listFactory;
+        this.symbols = symbols;
+        this.books = new ChunkedArray<>(symbols.capacity());
     }
 
     /**
-     * Gets the buy order list for a specific ticker symbol.
+     * Gets the buy order list for a specific ticker symbol, registering the ticker if it is new.
      *
      * @param ticker the ticker symbol
      * @return the buy order list
      */
     public OrderList getBuyOrders(String ticker) {
-        int index = TickerHasher.hash(ticker);
-        return buyOrders[index];
+        return getBook(symbols.register(ticker)).getBuyOrders();
     }
 
     /**
-     * Gets the sell order list for a specific ticker symbol.
+     * Gets the sell order list for a specific ticker symbol, registering the ticker if it is new.
      *
      * @param ticker the ticker symbol
      * @return the sell order list
      */
     public OrderList getSellOrders(String ticker) {
-        int index = TickerHasher.hash(ticker);
-        return sellOrders[index];
+        return getBook(symbols.register(ticker)).getSellOrders();
     }
 
     /**
-     * Gets the buy order list for a ticker at the specified hash index.
+     * Gets the buy order list for a symbol id.
      *
-     * @param index the ticker hash index
+     * @param index the symbol id
      * @return the buy order list
      */
     public OrderList getBuyOrdersByIndex(int index) {
-        return buyOrders[index];
+        return getBook(index).getBuyOrders();
     }
 
     /**
-     * Gets the sell order list for a ticker at the specified hash index.
+     * Gets the sell order list for a symbol id.
      *
-     * @param index the ticker hash index
+     * @param index the symbol id
      * @return the sell order list
      */
     public OrderList getSellOrdersByIndex(int index) {
-        return sellOrders[index];
+        return getBook(index).getSellOrders();
+    }
+
+    /**
+     * Gets the book of a symbol id, creating it if the symbol has not been traded yet.
+     *
+     * @param index the symbol id
+     * @return the book
+     */
+    public SymbolBook getBook(int index) {
+        SymbolBook book = books.get(index);
+        if (book == null) {
+            SymbolBook created = new SymbolBook(index, listFactory);
+            book = books.compareAndSet(index, null, created) ? created : books.get(index);
+        }
+        return book;
+    }
+
+    /**
+     * Gets the book of a symbol id without creating it.
+     *
+     * @param index the symbol id
+     * @return the book, or null if the symbol has never been traded
+     */
+    public SymbolBook findBook(int index) {
+        return books.get(index);
+    }
+
+    /**
+     * Gets how many adds had to back off, summed over both sides of every book.
+     *
+     * @return the number of contended adds so far
+     */
+    public long getContendedAddCount() {
+        long count = 0;
+        for (int i = 0; i < symbols.size(); i++) {
+            SymbolBook book = books.get(i);
+            if (book != null) {
+                count += book.getBuyOrders().getContendedAddCount() + book.getSellOrders().getContendedAddCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets how many contended adds had to yield the thread, summed over both sides of every book.
+     *
+     * @return the number of yielded adds so far
+     */
+    public long getYieldedAddCount() {
+        long count = 0;
+        for (int i = 0; i < symbols.size(); i++) {
+            SymbolBook book = books.get(i);
+            if (book != null) {
+                count += book.getBuyOrders().getYieldedAddCount() + book.getSellOrders().getYieldedAddCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the directory that maps tickers to symbol ids.
+     *
+     * @return the symbol directory
+     */
+    public SymbolDirectory getSymbols() {
+        return symbols;
     }
-}
\ No newline at end of file
+}
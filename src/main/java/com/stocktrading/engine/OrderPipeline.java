@@ -0,0 +1,353 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.ExecutionReport;
+import com.stocktrading.structure.MpscRing;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A staged front end for a TradingEngine, in the style of a ring-buffer disruptor.
+ *
+ * Producers claim a sequence number and fill a preallocated event in one shared ring.
+ * Three stages then follow each other over the same ring, each on its own thread:
+ * journal (write-ahead, flushed once per batch), match (applies the command to the engine
+ * and records the result) and publish (hands results to the listener). Every stage only reads
+ * up to the cursor of the stage before it, and producers only wait for the publish stage to
+ * free a slot, so no stage takes a lock and journaling and fan-out never delay matching.
+ * Nothing is matched unless it was journalled: once the journal fails, the failed batch and
+ * every later command are published as not accepted, and addOrder rejects new orders.
+ * Closing stops the ring at the commands published so far; every stage runs up to that end.
+ *
+ * Order ids are assigned from the sequence when the command is queued, in a range of their own
+ * (bit 62 set) that the engine's ids never reach, so orders added to the engine directly
+ * cannot clash with them. Use one pipeline per engine.
+ */
+public class OrderPipeline implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(OrderPipeline.class);
+    private static final int BATCH = 256;               // Most events a stage takes at once
+    private static final long ID_RANGE = 1L << 62;      // Set in every pipeline id, the engine counts up from 1
+
+    private final TradingEngine engine;
+    private final Journal journal;
+    private final PipelineListener listener;
+    private final WaitStrategy waitStrategy;
+
+    private final MpscRing<PipelineEvent> ring;         // Released by the publish stage
+
+    private final Stage journalStage;
+    private final Stage matchStage;
+    private final Stage publishStage;
+    private volatile boolean journalFailed;             // Set once, nothing is matched after it
+
+    /**
+     * Constructor, starts the stage threads.
+     *
+     * @param engine   the engine the match stage applies commands to
+     * @param journal  where commands are logged before matching
+     * @param listener receives every matched command
+     * @param capacity the number of ring slots, rounded up to a power of two
+     */
+    public OrderPipeline(TradingEngine engine, Journal journal, PipelineListener listener, int capacity) {
+        this(engine, journal, listener, capacity, new YieldingWaitStrategy());
+    }
+
+    /**
+     * Constructor, starts the stage threads.
+     *
+     * @param engine       the engine the match stage applies commands to
+     * @param journal      where commands are logged before matching
+     * @param listener     receives every matched command
+     * @param capacity     the number of ring slots, rounded up to a power of two
+     * @param waitStrategy how a stage thread waits for the producers or the stage before it
+     */
+    public OrderPipeline(TradingEngine engine, Journal journal, PipelineListener listener, int capacity,
+                         WaitStrategy waitStrategy) {
+        this.engine = engine;
+        this.journal = journal;
+        this.listener = listener;
+        this.waitStrategy = waitStrategy;
+        this.ring = new MpscRing<>(capacity, PipelineEvent::new);
+
+        this.journalStage = new Stage("pipeline-journal", null);
+        this.matchStage = new Stage("pipeline-match", journalStage);
+        this.publishStage = new Stage("pipeline-publish", matchStage);
+        journalStage.thread.start();
+        matchStage.thread.start();
+        publishStage.thread.start();
+    }
+
+    /**
+     * Queues a new order.
+     *
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param symbolId   the id returned by TradingEngine.registerSymbol
+     * @param quantity   the number of shares
+     * @param priceTicks the price per share in ticks of the symbol's tick size
+     * @return the order id, or TradingEngine.REJECTED if the order is invalid, the journal has failed
+     * or the pipeline is closed
+     */
+    public long addOrderTicks(boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        return add(isBuy, symbolId, quantity, priceTicks, null);
+    }
+
+    /**
+     * Queues a new order and returns a future for its execution report.
+     * The future completes on the match stage thread right after the order is matched, before
+     * the listener sees it, so dependent stages attached without an executor run on the matcher;
+     * use the async variants for anything slow. Invalid orders, orders the journal failed to
+     * record and orders after close complete as REJECTED.
+     *
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param symbolId   the id returned by TradingEngine.registerSymbol
+     * @param quantity   the number of shares
+     * @param priceTicks the price per share in ticks of the symbol's tick size
+     * @return the future report
+     */
+    public CompletableFuture<ExecutionReport> submitOrder(boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        CompletableFuture<ExecutionReport> report = new CompletableFuture<>();
+        if (add(isBuy, symbolId, quantity, priceTicks, report) == TradingEngine.REJECTED) {
+            return CompletableFuture.completedFuture(engine.report(TradingEngine.REJECTED, quantity));
+        }
+        return report;
+    }
+
+    private long add(boolean isBuy, int symbolId, int quantity, long priceTicks,
+                     CompletableFuture<ExecutionReport> report) {
+        // Validation
+        if (quantity <= 0 || priceTicks <= 0) {
+            logger.warn("Invalid order: quantity and price must be positive");
+            return TradingEngine.REJECTED;
+        }
+        if (journalFailed) {
+            logger.warn("Invalid order: the journal has failed");
+            return TradingEngine.REJECTED;
+        }
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            logger.warn("Invalid order: the pipeline is closed");
+            return TradingEngine.REJECTED;
+        }
+        long orderId = orderId(sequence);
+        PipelineEvent event = ring.get(sequence);
+        event.type = PipelineEvent.ADD;
+        event.orderId = orderId;
+        event.isBuy = isBuy;
+        event.symbolId = symbolId;
+        event.quantity = quantity;
+        event.priceTicks = priceTicks;
+        event.report = report;
+        publish(sequence, event);
+        return orderId;
+    }
+
+    /**
+     * Queues a cancel.
+     *
+     * @param orderId the id returned by addOrder
+     * @return the sequence of the cancel command, or -1 if the pipeline is closed
+     */
+    public long cancelOrder(long orderId) {
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            return -1;
+        }
+        PipelineEvent event = ring.get(sequence);
+        event.type = PipelineEvent.CANCEL;
+        event.orderId = orderId;
+        event.isBuy = false;     // Slots are reused, clear what an earlier command left
+        event.symbolId = -1;     // Resolved by the match stage
+        event.quantity = 0;
+        event.priceTicks = 0;
+        event.report = null;
+        publish(sequence, event);
+        return sequence;
+    }
+
+    /**
+     * Queues an amend, with the semantics of TradingEngine.amendOrder.
+     *
+     * @param orderId       the id returned by addOrder
+     * @param newQuantity   the new open quantity
+     * @param newPriceTicks the new price in ticks
+     * @return the sequence of the amend command, or -1 if the pipeline is closed
+     */
+    public long amendOrder(long orderId, int newQuantity, long newPriceTicks) {
+        long sequence = ring.claim();
+        if (sequence < 0) {
+            return -1;
+        }
+        PipelineEvent event = ring.get(sequence);
+        event.type = PipelineEvent.AMEND;
+        event.orderId = orderId;
+        event.isBuy = false;     // Slots are reused, clear what an earlier command left
+        event.symbolId = -1;     // Resolved by the match stage
+        event.quantity = newQuantity;
+        event.priceTicks = newPriceTicks;
+        event.report = null;
+        publish(sequence, event);
+        return sequence;
+    }
+
+    /**
+     * Waits until every command queued before this call has been published to the listener,
+     * or the pipeline has closed. Waits through the wait strategy, like the stages.
+     */
+    public void flush() {
+        long target = ring.claimedCount();
+        int idle = 0;
+        while (publishStage.cursor.get() < target && !ring.isEnd(publishStage.cursor.get())) {
+            waitStrategy.idle(idle == Integer.MAX_VALUE ? idle : ++idle);
+        }
+    }
+
+    /**
+     * Publishes every command published before this call, then stops the stage threads.
+     * A command still being queued while it closes is dropped, and later ones are refused.
+     * If the calling thread is interrupted it stops waiting and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        ring.close();
+        waitStrategy.signal(); // Wake idle stages so they see the end
+        try {
+            journalStage.thread.join();
+            matchStage.thread.join();
+            publishStage.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Ids follow the sequence inside the pipeline's own range
+    static long orderId(long sequence) {
+        return ID_RANGE | (sequence + 1);
+    }
+
+    private void publish(long sequence, PipelineEvent event) {
+        event.sequence = sequence;
+        ring.publish(sequence);
+        waitStrategy.signal();
+    }
+
+    // Journals one batch, flushed once; if the journal fails, the batch is not matched
+    private void journal(long from, long limit) {
+        boolean durable = !journalFailed;
+        if (durable) {
+            try {
+                for (long sequence = from; sequence < limit; sequence++) {
+                    journal.append(ring.get(sequence));
+                }
+                journal.flush();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Journal failed on sequences {} to {}, rejecting every command from here on",
+                        from, limit - 1, e);
+                journalFailed = true;
+                durable = false;
+            }
+        }
+        for (long sequence = from; sequence < limit; sequence++) {
+            ring.get(sequence).journalled = durable;
+        }
+    }
+
+    private void onEvent(Stage stage, PipelineEvent event, boolean endOfBatch) {
+        if (stage == matchStage) {
+            CompletableFuture<ExecutionReport> report = event.report;
+            event.report = null; // Do not keep the future reachable from the ring
+            try {
+                match(event);
+            } catch (RuntimeException e) {
+                if (report != null) {
+                    report.completeExceptionally(e);
+                }
+                throw e;
+            }
+            if (report != null) {
+                report.complete(engine.report(event.accepted ? event.orderId : TradingEngine.REJECTED,
+                        event.quantity));
+            }
+        } else {
+            listener.onEvent(event, endOfBatch);
+        }
+    }
+
+    private void match(PipelineEvent event) {
+        if (event.type != PipelineEvent.ADD) {
+            event.symbolId = engine.getSymbolId(event.orderId); // Resolve before the order can go away
+        }
+        if (!event.journalled) {
+            event.accepted = false; // Never applied, the journal has no record of it
+        } else {
+            switch (event.type) {
+                case PipelineEvent.ADD:
+                    event.accepted = engine.addOrder(event.orderId, event.isBuy, event.symbolId,
+                            event.quantity, event.priceTicks) != TradingEngine.REJECTED;
+                    break;
+                case PipelineEvent.CANCEL:
+                    event.accepted = engine.cancelOrder(event.orderId);
+                    break;
+                case PipelineEvent.AMEND:
+                    event.accepted = engine.amendOrder(event.orderId, event.quantity, event.priceTicks);
+                    break;
+                default:
+                    event.accepted = false;
+            }
+        }
+        event.openQuantity = engine.getOpenQuantity(event.orderId);
+        if (!engine.getTopOfBook(event.symbolId, event.topOfBook)) {
+            event.topOfBook.set(0, 0, 0, 0, 0);
+        }
+    }
+
+    // One stage thread, following the producers or the stage before it
+    private final class Stage implements Runnable {
+        private final AtomicLong cursor = new AtomicLong(); // Next sequence this stage will process
+        private final Stage upstream;
+        private final Thread thread;
+
+        private Stage(String name, Stage upstream) {
+            this.upstream = upstream;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            long next = 0;
+            // The journal stage reads up to the ring's end once closed, the others follow it there
+            while (!ring.isEnd(next)) {
+                long limit = upstream == null
+                        ? ring.publishedUpTo(next, next + BATCH)
+                        : Math.min(upstream.cursor.get(), next + BATCH);
+                if (limit == next) {
+                    waitStrategy.idle(idle == Integer.MAX_VALUE ? idle : ++idle);
+                    continue;
+                }
+                idle = 0;
+                if (this == journalStage) {
+                    journal(next, limit);
+                } else {
+                    for (long sequence = next; sequence < limit; sequence++) {
+                        PipelineEvent event = ring.get(sequence);
+                        try {
+                            onEvent(this, event, sequence == limit - 1);
+                        } catch (RuntimeException e) {
+                            // Keep the pipeline moving, a stuck stage would stall every producer
+                            logger.error("{} failed on sequence {}", thread.getName(), sequence, e);
+                        }
+                    }
+                }
+                next = limit;
+                cursor.lazySet(next);
+                if (this == publishStage) {
+                    ring.release(next); // Producers may now reuse the slots
+                }
+                waitStrategy.signal(); // The next stage may be blocked on this cursor
+            }
+        }
+    }
+}
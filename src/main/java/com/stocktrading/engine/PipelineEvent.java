@@ -0,0 +1,94 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.ExecutionReport;
+import com.stocktrading.model.TopOfBook;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One command passing through an OrderPipeline, and what matching made of it.
+ * Events are preallocated ring slots: a listener may read one during its callback
+ * but must copy anything it wants to keep, the slot is reused afterwards.
+ */
+public class PipelineEvent {
+    public static final int ADD = 0;
+    public static final int CANCEL = 1;
+    public static final int AMEND = 2;
+
+    // Command, written by the producer
+    int type;
+    long sequence;
+    long orderId;
+    boolean isBuy;
+    int symbolId;
+    int quantity;
+    long priceTicks;
+    boolean journalled;   // Written by the journal stage, false if the journal failed
+    CompletableFuture<ExecutionReport> report; // Completed by the match stage, null if none was asked for
+
+    // Result, written by the match stage
+    boolean accepted;
+    int openQuantity;
+    final TopOfBook topOfBook = new TopOfBook();
+
+    // getter
+    public int getType() {
+        return type;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public boolean isBuy() {
+        return isBuy;
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    /**
+     * Whether the engine applied the command: the order was added, cancelled or amended.
+     *
+     * @return true if the command took effect
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Gets the open quantity of the order right after the command was matched.
+     *
+     * @return the open quantity
+     */
+    public int getOpenQuantity() {
+        return openQuantity;
+    }
+
+    /**
+     * Gets the symbol's best bid and offer right after the command was matched.
+     *
+     * @return the top of book, owned by the event
+     */
+    public TopOfBook getTopOfBook() {
+        return topOfBook;
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineEvent{seq=" + sequence + ", type=" + type + ", order=" + orderId
+                + ", accepted=" + accepted + ", open=" + openQuantity + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package com.stocktrading.engine;
+
+/**
+ * Receives every command after it has been matched, on the pipeline's publish thread.
+ */
+@FunctionalInterface
+public interface PipelineListener {
+
+    /**
+     * Called once per command, in sequence order.
+     *
+     * @param event the command and its result, valid only during the call
+     * @param endOfBatch true for the last event of the current batch, a good point to flush output
+     */
+    void onEvent(PipelineEvent event, boolean endOfBatch);
+}
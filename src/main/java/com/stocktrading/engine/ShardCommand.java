@@ -0,0 +1,22 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.ExecutionReport;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One request travelling through a shard's inbound ring.
+ * Instances are preallocated ring slots and are overwritten for every request.
+ */
+class ShardCommand {
+    static final int ADD = 0;
+    static final int CANCEL = 1;
+    static final int AMEND = 2;
+
+    int type;
+    long orderId;
+    boolean isBuy;
+    int symbolId;
+    int quantity;
+    long priceTicks;
+    CompletableFuture<ExecutionReport> report; // Completed after matching, null if nobody waits
+}
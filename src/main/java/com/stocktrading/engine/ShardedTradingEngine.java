@@ -0,0 +1,279 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.DepthSnapshot;
+import com.stocktrading.model.ExecutionReport;
+import com.stocktrading.model.TickSize;
+import com.stocktrading.model.TopOfBook;
+import com.stocktrading.structure.LinkedOrderList;
+import com.stocktrading.structure.OrderListFactory;
+import com.stocktrading.util.SymbolDirectory;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A trading engine that splits symbols across single-writer matcher threads.
+ *
+ * Each symbol belongs to one shard (symbol id modulo the shard count). Callers never touch
+ * a book: they validate, queue a command on the owning shard's inbound ring and return.
+ * The shard thread applies commands in order, so matching runs without contention and
+ * throughput grows with the number of shards instead of falling as callers are added.
+ *
+ * Order ids are handed out when the command is queued and encode the owning shard, so
+ * cancel and amend are routed without any lookup. Reads such as getTopOfBook and
+ * getOpenQuantity go straight to the shard's books and are safe from any thread.
+ */
+public class ShardedTradingEngine implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedTradingEngine.class);
+    private static final int SHARD_BITS = 8;
+    private static final int SHARD_MASK = (1 << SHARD_BITS) - 1;
+    private static final int DEFAULT_RING_CAPACITY = 1 << 16;
+
+    private final SymbolDirectory symbols = new SymbolDirectory();
+    private final MatchingShard[] shards;
+
+    /**
+     * Creates an engine with the given number of matcher threads.
+     *
+     * @param shardCount the number of matcher threads, 1 to 256
+     */
+    public ShardedTradingEngine(int shardCount) {
+        this(shardCount, LinkedOrderList::new, DEFAULT_RING_CAPACITY, new YieldingWaitStrategy());
+    }
+
+    /**
+     * Creates an engine with the given number of matcher threads and book implementation.
+     *
+     * @param shardCount   the number of matcher threads, 1 to 256
+     * @param listFactory  creates the buy and sell list for each ticker
+     * @param ringCapacity commands each shard can hold before producers wait
+     */
+    public ShardedTradingEngine(int shardCount, OrderListFactory listFactory, int ringCapacity) {
+        this(shardCount, listFactory, ringCapacity, new YieldingWaitStrategy());
+    }
+
+    /**
+     * Creates an engine with the given number of matcher threads, book implementation and idle behaviour.
+     *
+     * @param shardCount   the number of matcher threads, 1 to 256
+     * @param listFactory  creates the buy and sell list for each ticker
+     * @param ringCapacity commands each shard can hold before producers wait
+     * @param waitStrategy how a matcher thread waits when its ring is empty
+     */
+    public ShardedTradingEngine(int shardCount, OrderListFactory listFactory, int ringCapacity,
+                                WaitStrategy waitStrategy) {
+        if (shardCount <= 0 || shardCount > SHARD_MASK + 1) {
+            throw new IllegalArgumentException("Invalid shard count: " + shardCount);
+        }
+        shards = new MatchingShard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new MatchingShard(i, listFactory, symbols, ringCapacity, waitStrategy);
+        }
+        for (MatchingShard shard : shards) {
+            shard.start();
+        }
+    }
+
+    /**
+     * Queues a new order. Matching happens on the owning shard's thread.
+     *
+     * @param isBuy    true for buy orders, false for sell orders
+     * @param ticker   the stock ticker symbol
+     * @param quantity the number of shares
+     * @param price    the price per share
+     * @return the order id, or TradingEngine.REJECTED if the order is invalid
+     */
+    public long addOrder(boolean isBuy, String ticker, int quantity, double price) {
+        // Validation
+        if (quantity <= 0 || price <= 0) {
+            logger.warn("Invalid order: quantity and price must be positive");
+            return TradingEngine.REJECTED;
+        }
+
+        int symbolId = symbols.register(ticker);
+        return addOrderTicks(isBuy, symbolId, quantity, symbols.get(symbolId).getTickSize().toTicks(price));
+    }
+
+    /**
+     * Queues a new order for a registered symbol id.
+     *
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param symbolId   the id returned by registerSymbol
+     * @param quantity   the number of shares
+     * @param priceTicks the price per share in ticks of the symbol's tick size
+     * @return the order id, or TradingEngine.REJECTED if the order is invalid or the engine is closed
+     */
+    public long addOrderTicks(boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        MatchingShard shard = shardOfSymbol(symbolId);
+        if (shard.engine().validate(isBuy, symbolId, quantity, priceTicks) == null) {
+            return TradingEngine.REJECTED;
+        }
+        return shard.submitAdd(isBuy, symbolId, quantity, priceTicks);
+    }
+
+    /**
+     * Queues a new order and returns a future for its execution report.
+     * The future completes on the shard's thread right after the order's matching pass, so
+     * dependent stages attached without an executor run on the matcher; use the async
+     * variants for anything slow. Invalid orders, and orders after close, complete immediately as REJECTED.
+     * An order that sweeps more resting orders than one matching slice is reported after the
+     * last slice of its pass, so the report covers the whole sweep.
+     *
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param symbolId   the id returned by registerSymbol
+     * @param quantity   the number of shares
+     * @param priceTicks the price per share in ticks of the symbol's tick size
+     * @return the future report
+     */
+    public CompletableFuture<ExecutionReport> submitOrder(boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        MatchingShard shard = shardOfSymbol(symbolId);
+        if (shard.engine().validate(isBuy, symbolId, quantity, priceTicks) == null) {
+            return CompletableFuture.completedFuture(rejected(quantity));
+        }
+        CompletableFuture<ExecutionReport> report = new CompletableFuture<>();
+        if (shard.submitAdd(isBuy, symbolId, quantity, priceTicks, report) == TradingEngine.REJECTED) {
+            return CompletableFuture.completedFuture(rejected(quantity));
+        }
+        return report;
+    }
+
+    /**
+     * Queues a cancel. It is applied after every command queued before it for the same symbol.
+     *
+     * @param orderId the id returned by addOrder
+     * @return true if the cancel was queued, false if the id cannot belong to this engine or it is closed
+     */
+    public boolean cancelOrder(long orderId) {
+        MatchingShard shard = shardOfOrder(orderId);
+        return shard != null && shard.submitCancel(orderId);
+    }
+
+    /**
+     * Queues an amend, with the semantics of TradingEngine.amendOrder.
+     *
+     * @param orderId       the id returned by addOrder
+     * @param newQuantity   the new open quantity
+     * @param newPriceTicks the new price in ticks
+     * @return true if the amend was queued, false if it is invalid or the engine is closed
+     */
+    public boolean amendOrder(long orderId, int newQuantity, long newPriceTicks) {
+        MatchingShard shard = shardOfOrder(orderId);
+        if (shard == null || newQuantity <= 0 || newPriceTicks <= 0) {
+            return false;
+        }
+        return shard.submitAmend(orderId, newQuantity, newPriceTicks);
+    }
+
+    /**
+     * Registers a ticker, or looks it up if it is already known.
+     *
+     * @param ticker the stock ticker symbol
+     * @return the symbol id
+     */
+    public int registerSymbol(String ticker) {
+        return symbols.register(ticker);
+    }
+
+    /**
+     * Sets the price increment of a ticker. Call before the ticker is traded.
+     *
+     * @param ticker   the stock ticker symbol
+     * @param tickSize the minimum price increment
+     */
+    public void setTickSize(String ticker, double tickSize) {
+        symbols.setTickSize(symbols.register(ticker), new TickSize(tickSize));
+    }
+
+    /**
+     * Gets the quantity an order still has open, as of the commands applied so far.
+     *
+     * @param orderId the id returned by addOrder
+     * @return the open quantity, 0 if the order is filled, unknown or not applied yet
+     */
+    public int getOpenQuantity(long orderId) {
+        MatchingShard shard = shardOfOrder(orderId);
+        return shard == null ? 0 : shard.engine().getOpenQuantity(orderId);
+    }
+
+    /**
+     * Copies the best bid and offer of a symbol into a caller-supplied holder.
+     *
+     * @param symbolId the symbol id
+     * @param into     the holder to fill
+     * @return true if the holder was filled, false if the symbol has never been traded
+     */
+    public boolean getTopOfBook(int symbolId, TopOfBook into) {
+        return symbols.get(symbolId) != null && shardOfSymbol(symbolId).engine().getTopOfBook(symbolId, into);
+    }
+
+    /**
+     * Copies the top levels of one side of a symbol's book into a caller-supplied holder.
+     *
+     * @param symbolId the symbol id
+     * @param isBuy    true for the bid side, false for the ask side
+     * @param into     the holder to fill
+     * @return the number of levels copied
+     */
+    public int getDepth(int symbolId, boolean isBuy, DepthSnapshot into) {
+        if (symbols.get(symbolId) == null) {
+            into.setLevelCount(0);
+            return 0;
+        }
+        return shardOfSymbol(symbolId).engine().getDepth(symbolId, isBuy, into);
+    }
+
+    /**
+     * Waits until every command queued before this call has been applied
+     * and every book it crossed has been matched. Waits through the engine's wait strategy.
+     */
+    public void flush() {
+        for (MatchingShard shard : shards) {
+            shard.awaitDrained();
+        }
+    }
+
+    /**
+     * Sends the fills of every shard to one trade stream, under one trade sequence.
+     *
+     * @param tradeStream the stream, or null to stop reporting fills
+     */
+    public void setTradeStream(TradeStream tradeStream) {
+        for (MatchingShard shard : shards) {
+            shard.engine().setTradeStream(tradeStream);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Applies every command published before this call, then stops the matcher threads.
+     * A command still being queued while it closes is dropped, and later ones are refused.
+     * If the calling thread is interrupted it stops waiting and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        for (MatchingShard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    // The id carries the ring sequence it was queued under and its shard in the low bits
+    static long orderId(long sequence, int shard) {
+        return ((sequence + 1) << SHARD_BITS) | shard;
+    }
+
+    private static ExecutionReport rejected(int quantity) {
+        return new ExecutionReport(TradingEngine.REJECTED, ExecutionReport.Status.REJECTED, quantity, 0);
+    }
+
+    private MatchingShard shardOfSymbol(int symbolId) {
+        return shards[Math.floorMod(symbolId, shards.length)]; // Invalid ids still pick a shard, its validation rejects them
+    }
+
+    private MatchingShard shardOfOrder(long orderId) {
+        int shard = (int) (orderId & SHARD_MASK);
+        return orderId > 0 && shard < shards.length ? shards[shard] : null;
+    }
+}
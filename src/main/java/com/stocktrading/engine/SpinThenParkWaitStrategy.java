@@ -0,0 +1,44 @@
+package com.stocktrading.engine;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins, then yields, then parks for a fixed time on every empty poll.
+ * An idle thread costs almost no CPU; work that arrives while it is parked waits up to the park time.
+ */
+public class SpinThenParkWaitStrategy implements WaitStrategy {
+    private final int spins;
+    private final int yields;
+    private final long parkNanos;
+
+    public SpinThenParkWaitStrategy() {
+        this(100, 100, 50_000L);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param spins     empty polls that spin
+     * @param yields    empty polls after the spins that yield
+     * @param parkNanos how long each later empty poll parks
+     */
+    public SpinThenParkWaitStrategy(int spins, int yields, long parkNanos) {
+        if (spins < 0 || yields < 0 || parkNanos <= 0) {
+            throw new IllegalArgumentException("Invalid wait strategy settings");
+        }
+        this.spins = spins;
+        this.yields = yields;
+        this.parkNanos = parkNanos;
+    }
+
+    @Override
+    public void idle(int idleCount) {
+        if (idleCount < spins) {
+            Thread.onSpinWait();
+        } else if (idleCount < spins + yields) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNanos);
+        }
+    }
+}
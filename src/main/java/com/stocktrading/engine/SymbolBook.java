@@ -0,0 +1,231 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.Order;
+import com.stocktrading.model.TopOfBook;
+import com.stocktrading.structure.MarketDepth;
+import com.stocktrading.structure.OrderList;
+import com.stocktrading.structure.OrderListFactory;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The buy and sell lists of one symbol, their aggregated depth, and a published copy of its best bid and offer.
+ * Created by OrderBook the first time the symbol is traded.
+ *
+ * The best bid and offer sit behind a seqlock: readers never block the matcher and never
+ * allocate, they retry if a publish overlapped their read. Only one thread publishes at a time;
+ * a thread that finds a publish in progress leaves a request and the publisher repeats.
+ *
+ * Matching is combined the same way: a thread that wants the book matched leaves a request,
+ * and whichever thread holds the matcher flag keeps matching until no requests are left.
+ */
+public class SymbolBook {
+    private static final VarHandle SEQ;
+    private static final VarHandle PUBLISH_REQUESTED;
+    private static final VarHandle MATCHING;
+    private static final VarHandle MATCH_REQUESTS;
+    private static final VarHandle DIRTY;
+    private static final VarHandle VALUE = MethodHandles.arrayElementVarHandle(long[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            SEQ = lookup.findVarHandle(SymbolBook.class, "seq", long.class);
+            PUBLISH_REQUESTED = lookup.findVarHandle(SymbolBook.class, "publishRequested", boolean.class);
+            MATCHING = lookup.findVarHandle(SymbolBook.class, "matching", boolean.class);
+            MATCH_REQUESTS = lookup.findVarHandle(SymbolBook.class, "matchRequests", int.class);
+            DIRTY = lookup.findVarHandle(SymbolBook.class, "dirty", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Slots in the published top of book
+    private static final int BID_PRICE = 0;
+    private static final int BID_QTY = 1;
+    private static final int ASK_PRICE = 2;
+    private static final int ASK_QTY = 3;
+
+    private final int symbolId;
+    private final OrderList buyOrders;
+    private final OrderList sellOrders;
+    private final MarketDepth buyDepth = new MarketDepth(true);
+    private final MarketDepth sellDepth = new MarketDepth(false);
+
+    private final long[] top = new long[4];   // Written only while seq is odd
+    private long seq;                         // Seqlock, odd while a publish is in progress
+    private boolean publishRequested;         // Set by threads that found a publish in progress
+    private boolean matching;                 // Held by the one thread matching this book
+    private int matchRequests;                // Matching passes asked for since the matcher last looked
+    private boolean dirty;                    // Queued on the engine's match pool
+    private Runnable matchTask;               // The pool task for this book, made once
+    private long batchStamp;                  // Last addOrders batch that touched this book
+
+    /**
+     * Constructor
+     *
+     * @param symbolId the symbol id
+     * @param listFactory creates the buy and sell lists
+     */
+    public SymbolBook(int symbolId, OrderListFactory listFactory) {
+        this.symbolId = symbolId;
+        this.buyOrders = listFactory.create(true);
+        this.sellOrders = listFactory.create(false);
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public OrderList getBuyOrders() {
+        return buyOrders;
+    }
+
+    public OrderList getSellOrders() {
+        return sellOrders;
+    }
+
+    public MarketDepth getBuyDepth() {
+        return buyDepth;
+    }
+
+    public MarketDepth getSellDepth() {
+        return sellDepth;
+    }
+
+    /**
+     * Asks for a matching pass. Call after the change that may have crossed the book is visible.
+     */
+    void requestMatch() {
+        MATCH_REQUESTS.getAndAdd(this, 1);
+    }
+
+    /**
+     * Takes the matcher flag.
+     *
+     * @return true if this thread is now the only one matching the book
+     */
+    boolean tryAcquireMatcher() {
+        return !(boolean) MATCHING.getVolatile(this) && MATCHING.compareAndSet(this, false, true);
+    }
+
+    /**
+     * Takes every outstanding request. Call only while holding the matcher flag.
+     *
+     * @return the number of requests taken, 0 if there is nothing left to do
+     */
+    int takeMatchRequests() {
+        return (int) MATCH_REQUESTS.getAndSet(this, 0);
+    }
+
+    /**
+     * Gives the matcher flag back. The caller must check hasMatchRequests afterwards,
+     * since a request left just before the release found the flag still taken.
+     */
+    void releaseMatcher() {
+        MATCHING.setVolatile(this, false);
+    }
+
+    boolean hasMatchRequests() {
+        return (int) MATCH_REQUESTS.getVolatile(this) != 0;
+    }
+
+    /**
+     * Marks the book as waiting for the match pool.
+     *
+     * @return true if it was not already waiting, so the caller must queue it
+     */
+    boolean tryMarkDirty() {
+        return !(boolean) DIRTY.getVolatile(this) && DIRTY.compareAndSet(this, false, true);
+    }
+
+    void clearDirty() {
+        DIRTY.setVolatile(this, false);
+    }
+
+    Runnable getMatchTask() {
+        return matchTask;
+    }
+
+    void setMatchTask(Runnable matchTask) {
+        this.matchTask = matchTask;
+    }
+
+    /**
+     * Stamps the book as touched by a batch.
+     * A racing batch may overwrite the stamp, in which case the book is matched twice, which is harmless.
+     *
+     * @param batch the batch number, unique per addOrders call
+     * @return true if the book was not yet stamped with this batch
+     */
+    boolean markTouched(long batch) {
+        if (batchStamp == batch) {
+            return false;
+        }
+        batchStamp = batch;
+        return true;
+    }
+
+    /**
+     * Copies the latest published best bid and offer into a holder.
+     * Lock free and allocation free, safe to call from any thread at any rate.
+     *
+     * @param into the holder to fill
+     */
+    public void readTopOfBook(TopOfBook into) {
+        while (true) {
+            long before = (long) SEQ.getAcquire(this);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait(); // Publish in progress
+                continue;
+            }
+            long bidPrice = (long) VALUE.getOpaque(top, BID_PRICE);
+            long bidQty = (long) VALUE.getOpaque(top, BID_QTY);
+            long askPrice = (long) VALUE.getOpaque(top, ASK_PRICE);
+            long askQty = (long) VALUE.getOpaque(top, ASK_QTY);
+            VarHandle.acquireFence();
+            if ((long) SEQ.getOpaque(this) == before) {
+                into.set(bidPrice, bidQty, askPrice, askQty, before >>> 1);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publishes the current heads of both lists as the best bid and offer.
+     * Must be called inside an OrderPool enter/exit section since it reads live orders.
+     * If another thread is publishing, it is asked to publish again instead.
+     */
+    void publishTopOfBook() {
+        PUBLISH_REQUESTED.setVolatile(this, true);
+        while (true) {
+            long current = (long) SEQ.getVolatile(this);
+            if ((current & 1) != 0 || !SEQ.compareAndSet(this, current, current + 1)) {
+                return; // The publisher in progress will see the request
+            }
+            PUBLISH_REQUESTED.setVolatile(this, false);
+
+            writeSide(buyOrders.peek(), buyDepth, BID_PRICE, BID_QTY);
+            writeSide(sellOrders.peek(), sellDepth, ASK_PRICE, ASK_QTY);
+
+            // Volatile, not release, so the request check below cannot move above it
+            SEQ.setVolatile(this, current + 2);
+            if (!(boolean) PUBLISH_REQUESTED.getVolatile(this)) {
+                return;
+            }
+        }
+    }
+
+    // The head gives the best price, the depth the total resting there.
+    // A filled head that has not been unlinked yet counts as an empty side.
+    private void writeSide(Order best, MarketDepth depth, int priceSlot, int qtySlot) {
+        if (best == null || best.getQuantity() == 0) {
+            VALUE.setOpaque(top, priceSlot, 0L);
+            VALUE.setOpaque(top, qtySlot, 0L);
+            return;
+        }
+        long priceTicks = best.getPriceTicks();
+        VALUE.setOpaque(top, priceSlot, priceTicks);
+        VALUE.setOpaque(top, qtySlot, depth.getQuantity(priceTicks));
+    }
+}
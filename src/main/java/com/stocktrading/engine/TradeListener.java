@@ -0,0 +1,17 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.Trade;
+
+/**
+ * Receives every trade of the engines feeding a TradeStream, on the stream's dispatch thread.
+ */
+@FunctionalInterface
+public interface TradeListener {
+
+    /**
+     * Called once per fill, in trade sequence order.
+     *
+     * @param trade a flyweight over the trade record, valid only during the call; copy what you keep
+     */
+    void onTrade(Trade trade);
+}
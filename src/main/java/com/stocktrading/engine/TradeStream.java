@@ -0,0 +1,141 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.Trade;
+import com.stocktrading.structure.TradeRing;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The trade feed of one or more engines.
+ *
+ * Matchers write each fill into a preallocated TradeRing and return; a dispatch thread hands
+ * the trades to every subscribed listener through one reused Trade flyweight, so publishing
+ * fills creates no garbage. Trades from all engines feeding the stream share one sequence.
+ * A full ring makes matchers wait for the listeners, so a slow listener slows matching
+ * rather than losing trades. Once the stream is closed, fills are dropped instead of waiting
+ * for a dispatch thread that has stopped.
+ */
+public class TradeStream implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(TradeStream.class);
+    private static final int BATCH = 256; // Trades dispatched per drain
+
+    private final TradeRing ring;
+    private final WaitStrategy waitStrategy;
+    private final Trade flyweight = new Trade();
+    private final Consumer<Trade> dispatcher = this::dispatch;
+    private final Thread thread;
+    private volatile TradeListener[] listeners = new TradeListener[0]; // Copied on subscribe, iterated without allocating
+
+    /**
+     * Constructor, starts the dispatch thread.
+     *
+     * @param capacity the number of trades buffered before matchers wait
+     */
+    public TradeStream(int capacity) {
+        this(capacity, new YieldingWaitStrategy());
+    }
+
+    /**
+     * Constructor, starts the dispatch thread.
+     *
+     * @param capacity     the number of trades buffered before matchers wait
+     * @param waitStrategy how the dispatch thread waits for trades
+     */
+    public TradeStream(int capacity, WaitStrategy waitStrategy) {
+        this.ring = new TradeRing(capacity);
+        this.waitStrategy = waitStrategy;
+        this.thread = new Thread(this::run, "trade-stream");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Adds a listener. It receives the trades published from now on.
+     *
+     * @param listener the listener
+     */
+    public synchronized void subscribe(TradeListener listener) {
+        TradeListener[] current = listeners;
+        TradeListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Records one fill. Called by the matcher, never allocates. Dropped if the stream is closed.
+     *
+     * @param symbolId    the symbol traded
+     * @param buyOrderId  the buy order id
+     * @param sellOrderId the sell order id
+     * @param priceTicks  the trade price in ticks
+     * @param quantity    the quantity traded
+     */
+    void publish(int symbolId, long buyOrderId, long sellOrderId, long priceTicks, int quantity) {
+        if (ring.offer(symbolId, buyOrderId, sellOrderId, priceTicks, quantity, System.nanoTime()) >= 0) {
+            waitStrategy.signal();
+        }
+    }
+
+    /**
+     * Waits until every trade published before this call has reached the listeners.
+     * Waits through the wait strategy, like the dispatch thread.
+     */
+    public void flush() {
+        long target = ring.claimedCount();
+        int idle = 0;
+        while (ring.consumedCount() < target && !ring.isDrained()) {
+            waitStrategy.idle(idle == Integer.MAX_VALUE ? idle : ++idle);
+        }
+    }
+
+    /**
+     * Gets the number of trades published so far.
+     *
+     * @return the trade count
+     */
+    public long getTradeCount() {
+        return ring.claimedCount();
+    }
+
+    /**
+     * Dispatches every trade published so far, then stops the dispatch thread.
+     * Fills still being published, and any after this call, are dropped.
+     * If the calling thread is interrupted it stops waiting and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        ring.close();
+        waitStrategy.signal();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        int idle = 0;
+        // Keep draining after close up to the ring's end, published trades are not dropped
+        while (!ring.isDrained()) {
+            if (ring.drain(flyweight, dispatcher, BATCH) > 0) {
+                idle = 0;
+                waitStrategy.signal(); // A flush may be waiting on this progress
+            } else {
+                waitStrategy.idle(idle == Integer.MAX_VALUE ? idle : ++idle);
+            }
+        }
+    }
+
+    private void dispatch(Trade trade) {
+        for (TradeListener listener : listeners) {
+            try {
+                listener.onTrade(trade);
+            } catch (RuntimeException e) {
+                // One failing listener must not starve the others
+                logger.error("Trade listener failed on trade {}", trade.getSequence(), e);
+            }
+        }
+    }
+}
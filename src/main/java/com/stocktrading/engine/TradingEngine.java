@@ -1,8 +1,26 @@
 package com.stocktrading.engine;
 
+import com.stocktrading.model.DepthSnapshot;
+import com.stocktrading.model.ExecutionReport;
+import com.stocktrading.model.Instrument;
 import com.stocktrading.model.Order;
+import com.stocktrading.model.OrderPool;
+import com.stocktrading.model.TickSize;
+import com.stocktrading.model.TopOfBook;
 import com.stocktrading.structure.OrderList;
-import com.stocktrading.util.TickerHasher;
+import com.stocktrading.structure.MarketDepth;
+import com.stocktrading.structure.OrderIndex;
+import com.stocktrading.structure.OrderListFactory;
+import com.stocktrading.util.SymbolDirectory;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,46 +29,566 @@ import org.slf4j.LoggerFactory;
  * Provides thread-safe operations for concurrent order processing.
  */
 public class TradingEngine {
+    /** Returned by addOrder when the order is rejected; real ids start at 1. */
+    public static final long REJECTED = 0;
+
     private static final Logger logger = LoggerFactory.getLogger(TradingEngine.class);
+    private static final int INDEX_SIZE = 1 << 18; // Live orders the id index is sized for
+    private static final int MATCH_SLICE = 128;    // Fills per matching slice before other symbols get a turn
     private final OrderBook orderBook;
+    private final SymbolDirectory symbols;
+    private final AtomicLong orderSequence = new AtomicLong(); // Arrival order for time priority
+    private final OrderPool orderPool = new OrderPool();       // Recycles filled orders
+    private final AtomicLong orderIds = new AtomicLong();      // Source of order ids
+    private final OrderIndex orderIndex = new OrderIndex(INDEX_SIZE); // Order id to live order
+    private final AtomicLong batches = new AtomicLong();       // Stamps the books an addOrders call touched
+    private final ThreadLocal<SymbolBook[]> touchedBooks =     // Books an addOrders call touched, reused per thread
+            ThreadLocal.withInitial(() -> new SymbolBook[16]);
+    private final ForkJoinPool matchPool;                      // Runs matching off the adding threads, null to match inline
+    private final Queue<SymbolBook> pendingSlices;             // Crossed books waiting for their next slice, null unless sliced
+    private final AtomicInteger unfinishedSlices = new AtomicInteger(); // Queued or running continuations
+    private volatile TradeStream tradeStream;                  // Receives every fill, null for none
 
     /**
      * Constructor
      */
     public TradingEngine() {
         this.orderBook = new OrderBook();
+        this.symbols = orderBook.getSymbols();
+        this.matchPool = null;
+        this.pendingSlices = null;
+    }
+
+    /**
+     * Creates an engine whose books use the given order list implementation.
+     *
+     * @param listFactory creates the buy and sell list for each ticker
+     */
+    public TradingEngine(OrderListFactory listFactory) {
+        this.orderBook = new OrderBook(listFactory);
+        this.symbols = orderBook.getSymbols();
+        this.matchPool = null;
+        this.pendingSlices = null;
+    }
+
+    /**
+     * Creates an engine over a symbol directory shared with other engines.
+     *
+     * @param listFactory creates the buy and sell list for each ticker
+     * @param symbols     the shared ticker to symbol id mapping
+     */
+    public TradingEngine(OrderListFactory listFactory, SymbolDirectory symbols) {
+        this.orderBook = new OrderBook(listFactory, symbols);
+        this.symbols = symbols;
+        this.matchPool = null;
+        this.pendingSlices = null;
+    }
+
+    /**
+     * Creates an engine that matches on a pool instead of on the adding threads.
+     * addOrder, addOrders and amendOrder put the order on the book, mark its symbol dirty and
+     * return; the pool matches each dirty symbol, so bursts on different symbols spread across
+     * its workers. Use awaitMatching to wait for the book to settle.
+     *
+     * @param listFactory creates the buy and sell list for each ticker
+     * @param matchPool   runs the matching passes, ideally in async mode
+     */
+    public TradingEngine(OrderListFactory listFactory, ForkJoinPool matchPool) {
+        this.orderBook = new OrderBook(listFactory);
+        this.symbols = orderBook.getSymbols();
+        this.matchPool = matchPool;
+        this.pendingSlices = null;
+    }
+
+    /**
+     * Creates an engine for a single writer thread that matches in slices.
+     * A book still crossed after a slice is queued, and the writer resumes it through
+     * runPendingSlice between its other work, so one symbol cannot hold the thread.
+     *
+     * @param listFactory creates the buy and sell list for each ticker
+     * @param symbols     the shared ticker to symbol id mapping
+     * @param sliced      true to queue continuations instead of matching to completion
+     */
+    TradingEngine(OrderListFactory listFactory, SymbolDirectory symbols, boolean sliced) {
+        this.orderBook = new OrderBook(listFactory, symbols);
+        this.symbols = symbols;
+        this.matchPool = null;
+        this.pendingSlices = sliced ? new ConcurrentLinkedQueue<>() : null;
     }
 
     /**
      * Adds a new order to the trading system.
+     * Converts the price to ticks of the ticker's tick size, rounding to the nearest tick.
      *
      * @param isBuy    true for buy orders, false for sell orders
      * @param ticker   the stock ticker symbol
      * @param quantity the number of shares
      * @param price    the price per share
+     * @return the order id, or REJECTED if the order is invalid
      */
-    public void addOrder(boolean isBuy, String ticker, int quantity, double price) {
+    public long addOrder(boolean isBuy, String ticker, int quantity, double price) {
         // Validation
         if (quantity <= 0 || price <= 0) {
             logger.warn("Invalid order: quantity and price must be positive");
-            return;
+            return REJECTED;
+        }
+
+        int symbolId = symbols.register(ticker);
+        return addOrderTicks(isBuy, symbolId, quantity, symbols.get(symbolId).getTickSize().toTicks(price));
+    }
+
+    /**
+     * Adds a new order to the trading system with the price given in ticks.
+     * Named apart from addOrder, so an integer price there never resolves to ticks by accident.
+     *
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param ticker     the stock ticker symbol
+     * @param quantity   the number of shares
+     * @param priceTicks the price per share in ticks of the ticker's tick size
+     * @return the order id, or REJECTED if the order is invalid
+     */
+    public long addOrderTicks(boolean isBuy, String ticker, int quantity, long priceTicks) {
+        return addOrderTicks(isBuy, symbols.register(ticker), quantity, priceTicks);
+    }
+
+    /**
+     * Adds a new order for a registered symbol id. This is the fast path,
+     * no string is hashed and the id indexes the book directly.
+     *
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param symbolId   the id returned by registerSymbol
+     * @param quantity   the number of shares
+     * @param priceTicks the price per share in ticks of the symbol's tick size
+     * @return the order id, or REJECTED if the order is invalid
+     */
+    public long addOrderTicks(boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        Instrument instrument = validate(isBuy, symbolId, quantity, priceTicks);
+        if (instrument == null) {
+            return REJECTED;
+        }
+        return addOrder(orderIds.incrementAndGet(), isBuy, instrument, quantity, priceTicks);
+    }
+
+    /**
+     * Adds a new order and returns a future for its execution report.
+     * An inline engine matches the order on the calling thread, so the future is already complete
+     * when this returns. An engine with a match pool completes it on the pool once the symbol has
+     * been matched to completion. If another thread is matching the symbol at the same moment, that
+     * thread may still be filling the order when the report is taken. Invalid orders complete
+     * immediately as REJECTED.
+     *
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param symbolId   the id returned by registerSymbol
+     * @param quantity   the number of shares
+     * @param priceTicks the price per share in ticks of the symbol's tick size
+     * @return the future report
+     */
+    public CompletableFuture<ExecutionReport> submitOrder(boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        long orderId = addOrderTicks(isBuy, symbolId, quantity, priceTicks);
+        if (orderId == REJECTED || matchPool == null) {
+            return CompletableFuture.completedFuture(report(orderId, quantity));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                matchOrder(symbolId); // Behind the dirty-book pass, or doing its work if it has not run yet
+                return report(orderId, quantity);
+            }, matchPool);
+        } catch (RejectedExecutionException e) {
+            // Pool shut down, addOrder already matched the book on this thread
+            return CompletableFuture.completedFuture(report(orderId, quantity));
+        }
+    }
+
+    /**
+     * Adds a new order under an id assigned by the caller, used by engines that
+     * hand out ids before the order reaches the book.
+     *
+     * @param orderId    the order id, positive and unique within this engine
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param symbolId   the symbol id
+     * @param quantity   the number of shares
+     * @param priceTicks the price per share in ticks of the symbol's tick size
+     * @return the order id, or REJECTED if the order is invalid
+     */
+    long addOrder(long orderId, boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        Instrument instrument = validate(isBuy, symbolId, quantity, priceTicks);
+        if (instrument == null) {
+            return REJECTED;
+        }
+        return addOrder(orderId, isBuy, instrument, quantity, priceTicks);
+    }
+
+    private long addOrder(long orderId, boolean isBuy, Instrument instrument, int quantity, long priceTicks) {
+        orderPool.enter();
+        try {
+            SymbolBook book = orderBook.getBook(instrument.getId());
+            boolean swept = false;
+            if (matchPool == null && book.tryAcquireMatcher()) {
+                try {
+                    // Every link of a crossing order raises a request first, so with none outstanding
+                    // and the book uncrossed nothing resting on this side can outrank the incoming
+                    // order. Fill it against the opposite side first, so only a remainder is ever
+                    // linked into its list.
+                    if (!book.hasMatchRequests() && !isCrossed(book)) {
+                        int budget = pendingSlices == null ? Integer.MAX_VALUE : MATCH_SLICE;
+                        int remaining = sweep(book, orderId, isBuy, quantity, priceTicks, budget);
+                        if (remaining > 0) {
+                            insertOrder(orderId, isBuy, instrument, remaining, priceTicks);
+                            if (isCrossed(book)) {
+                                book.requestMatch(); // Slice used up, the rest is matched as a continuation
+                            }
+                        }
+                        book.publishTopOfBook();
+                        swept = true;
+                    }
+                } finally {
+                    book.releaseMatcher();
+                }
+            }
+            if (!swept) {
+                // Request before linking, so no sweeper can miss the new order. Then try to match
+                book.requestMatch();
+                insertOrder(orderId, isBuy, instrument, quantity, priceTicks);
+                serveMatchRequests(book);
+            } else if (book.hasMatchRequests()) {
+                // Serve adders that left a request while this thread held the flag
+                drainMatchRequests(book, pendingSlices != null);
+            }
+        } finally {
+            orderPool.exit();
+        }
+        return orderId;
+    }
+
+    /**
+     * Fills an incoming order against the opposite side of a book, best price first.
+     * Every fill is at the resting order's price. Call only while holding the book's matcher flag.
+     *
+     * @param book       the book
+     * @param orderId    the id of the incoming order
+     * @param isBuy      the side of the incoming order
+     * @param quantity   the incoming quantity
+     * @param priceTicks the incoming limit price
+     * @param budget     the most resting orders to look at
+     * @return the quantity left to rest, 0 if the order filled completely
+     */
+    private int sweep(SymbolBook book, long orderId, boolean isBuy, int quantity, long priceTicks, int budget) {
+        OrderList opposite = isBuy ? book.getSellOrders() : book.getBuyOrders();
+        MarketDepth depth = isBuy ? book.getSellDepth() : book.getBuyDepth();
+        int remaining = quantity;
+        for (int step = 0; remaining > 0 && step < budget; step++) {
+            Order resting = opposite.peek();
+            if (resting == null) {
+                break;
+            }
+            long restingPrice = resting.getPriceTicks();
+            if (isBuy ? restingPrice > priceTicks : restingPrice < priceTicks) {
+                break; // Best resting price is beyond the limit
+            }
+            int restingQty = resting.getQuantity();
+            if (restingQty == 0) {
+                removeFilled(opposite, resting);
+                continue;
+            }
+            int fillQty = Math.min(remaining, restingQty);
+            if (!resting.updateQuantity(restingQty, restingQty - fillQty)) {
+                continue; // A cancel or amend changed it, look again
+            }
+            depth.reduce(restingPrice, fillQty, restingQty == fillQty);
+            remaining -= fillQty;
+            publishTrade(book.getSymbolId(), isBuy ? orderId : resting.getOrderId(),
+                    isBuy ? resting.getOrderId() : orderId, restingPrice, fillQty);
+            if (restingQty == fillQty) {
+                removeFilled(opposite, resting);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Adds a burst of orders given as parallel arrays, one entry per order.
+     * Orders are inserted in array order, so time priority follows the array, and each
+     * symbol touched by the batch is matched once after all its orders are in, instead
+     * of once per order. Invalid entries are skipped and get REJECTED as their id.
+     *
+     * @param isBuy      true for buy orders, false for sell orders
+     * @param symbolIds  the ids returned by registerSymbol
+     * @param quantities the number of shares
+     * @param priceTicks the price per share in ticks of each symbol's tick size
+     * @param count      the number of entries to read from each array
+     * @param orderIdsOut receives each entry's order id, may be null
+     * @return the number of orders accepted
+     */
+    public int addOrders(boolean[] isBuy, int[] symbolIds, int[] quantities, long[] priceTicks,
+                         int count, long[] orderIdsOut) {
+        if (count < 0 || count > isBuy.length || count > symbolIds.length
+                || count > quantities.length || count > priceTicks.length
+                || (orderIdsOut != null && count > orderIdsOut.length)) {
+            throw new IllegalArgumentException("Invalid batch size: " + count);
+        }
+
+        long batch = batches.incrementAndGet();
+        SymbolBook[] touched = touchedBooks.get();
+        int touchedCount = 0;
+        int accepted = 0;
+        orderPool.enter();
+        try {
+            for (int i = 0; i < count; i++) {
+                long orderId = REJECTED;
+                Instrument instrument = validate(isBuy[i], symbolIds[i], quantities[i], priceTicks[i]);
+                if (instrument != null) {
+                    orderId = orderIds.incrementAndGet();
+                    SymbolBook book = orderBook.getBook(instrument.getId());
+                    if (book.markTouched(batch)) {
+                        book.requestMatch(); // Before the first link, so no sweeper can miss the batch
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2); // Bounded by the symbol count
+                            touchedBooks.set(touched);
+                        }
+                        touched[touchedCount++] = book;
+                    }
+                    insertOrder(orderId, isBuy[i], instrument, quantities[i], priceTicks[i]);
+                    accepted++;
+                }
+                if (orderIdsOut != null) {
+                    orderIdsOut[i] = orderId;
+                }
+            }
+
+            // One matching pass per symbol
+            for (int i = 0; i < touchedCount; i++) {
+                serveMatchRequests(touched[i]);
+            }
+        } finally {
+            orderPool.exit();
+        }
+        return accepted;
+    }
+
+    // Validation shared by every way of adding an order, here and in the engines that queue orders
+    // for this one; logs the reason and returns null if invalid. Runs before anything is indexed
+    // or linked, so a rejected order leaves no trace on the book.
+    Instrument validate(boolean isBuy, int symbolId, int quantity, long priceTicks) {
+        if (quantity <= 0 || priceTicks <= 0) {
+            logger.warn("Invalid order: quantity and price must be positive");
+            return null;
+        }
+        Instrument instrument = symbols.get(symbolId);
+        if (instrument == null) {
+            logger.warn("Invalid order: unknown symbol id {}", symbolId);
+            return null;
         }
+        SymbolBook book = orderBook.getBook(symbolId);
+        if (!(isBuy ? book.getBuyOrders() : book.getSellOrders()).accepts(priceTicks)) {
+            logger.warn("Invalid order: price of {} ticks is outside the book's range", priceTicks);
+            return null;
+        }
+        return instrument;
+    }
 
-        // Create a new order
-        Order order = new Order(isBuy, ticker, quantity, price);
-        int tickerIndex = TickerHasher.hash(ticker);
+    // Puts an order on its book without matching; call inside an OrderPool enter/exit section
+    private SymbolBook insertOrder(long orderId, boolean isBuy, Instrument instrument, int quantity, long priceTicks) {
+        // Take a recycled order from the pool
+        Order order = orderPool.acquire(orderId, isBuy, instrument, quantity, priceTicks,
+                orderSequence.incrementAndGet());
 
         logger.debug("Adding order: {}", order);
 
-        // Add to appropriate order list
+        // Index before the order can rest or fill, so every live order is findable by id
+        orderIndex.put(orderId, order);
+
+        // Add to appropriate order list, creating the symbol's book on its first order.
+        // Depth is recorded first so no fill of this order can reach it before the add.
+        SymbolBook book = orderBook.getBook(instrument.getId());
         if (isBuy) {
-            orderBook.getBuyOrdersByIndex(tickerIndex).add(order);
+            book.getBuyDepth().addOrder(priceTicks, quantity);
+            book.getBuyOrders().add(order);
         } else {
-            orderBook.getSellOrdersByIndex(tickerIndex).add(order);
+            book.getSellDepth().addOrder(priceTicks, quantity);
+            book.getSellOrders().add(order);
+        }
+        return book;
+    }
+
+    /**
+     * Cancels an order, taking whatever quantity is still open off the book.
+     * The open quantity is zeroed first, so no fill can reach the order after this returns.
+     *
+     * @param orderId the id returned by addOrder
+     * @return true if the order was open and is now cancelled, false if it was already filled or unknown
+     */
+    public boolean cancelOrder(long orderId) {
+        orderPool.enter();
+        try {
+            Order order = orderIndex.get(orderId);
+            if (order == null) {
+                return false;
+            }
+
+            // Take the open quantity away from the matcher
+            int open;
+            do {
+                open = order.getQuantity();
+                if (open == 0) {
+                    return false; // Filled meanwhile
+                }
+            } while (!order.updateQuantity(open, 0));
+
+            SymbolBook book = orderBook.getBook(order.getSymbolId());
+            if (order.isBuy()) {
+                book.getBuyDepth().reduce(order.getPriceTicks(), open, true);
+                removeFilled(book.getBuyOrders(), order);
+            } else {
+                book.getSellDepth().reduce(order.getPriceTicks(), open, true);
+                removeFilled(book.getSellOrders(), order);
+            }
+            book.publishTopOfBook();
+            return true;
+        } finally {
+            orderPool.exit();
         }
+    }
 
-        // Try to match orders
-        matchOrder(ticker);
+    /**
+     * Amends the open quantity and price of an order, keeping its id.
+     * A quantity reduction at the same price is applied in place with a CAS and keeps the
+     * order's place in line. A price change or quantity increase moves the order to the back
+     * of its new price level, in one step without a second id lookup or a new order id.
+     *
+     * @param orderId       the id returned by addOrder
+     * @param newQuantity   the new open quantity
+     * @param newPriceTicks the new price in ticks
+     * @return true if the order was open and is now amended, false if it was already filled or unknown
+     */
+    public boolean amendOrder(long orderId, int newQuantity, long newPriceTicks) {
+        // Validation
+        if (newQuantity <= 0 || newPriceTicks <= 0) {
+            logger.warn("Invalid amend: quantity and price must be positive");
+            return false;
+        }
+
+        orderPool.enter();
+        try {
+            Order order = orderIndex.get(orderId);
+            if (order == null) {
+                return false;
+            }
+            SymbolBook book = orderBook.getBook(order.getSymbolId());
+            boolean isBuy = order.isBuy();
+            if (!(isBuy ? book.getBuyOrders() : book.getSellOrders()).accepts(newPriceTicks)) {
+                logger.warn("Invalid amend: price of {} ticks is outside the book's range", newPriceTicks);
+                return false;
+            }
+            MarketDepth depth = isBuy ? book.getBuyDepth() : book.getSellDepth();
+            boolean samePrice = order.getPriceTicks() == newPriceTicks;
+
+            // Take the open quantity, or just the reduction when the order can stay in place
+            int open;
+            while (true) {
+                open = order.getQuantity();
+                if (open == 0) {
+                    return false; // Filled or cancelled meanwhile
+                }
+                int keep = samePrice && newQuantity <= open ? newQuantity : 0;
+                if (order.updateQuantity(open, keep)) {
+                    if (keep > 0) {
+                        depth.reduce(newPriceTicks, open - keep, false);
+                        book.publishTopOfBook();
+                        return true;
+                    }
+                    break;
+                }
+            }
+
+            // Replace the order under the same id, then retire the old one
+            Order replacement = orderPool.acquire(orderId, isBuy, order.getInstrument(), newQuantity,
+                    newPriceTicks, orderSequence.incrementAndGet());
+            if (!orderIndex.replace(orderId, order, replacement)) {
+                orderIndex.put(orderId, replacement); // The matcher unindexed the old order first
+            }
+            depth.reduce(order.getPriceTicks(), open, true);
+            depth.addOrder(newPriceTicks, newQuantity);
+
+            OrderList list = isBuy ? book.getBuyOrders() : book.getSellOrders();
+            removeFilled(list, order);
+            book.requestMatch(); // The new price may cross the book, request before linking
+            list.add(replacement);
+            serveMatchRequests(book);
+            return true;
+        } finally {
+            orderPool.exit();
+        }
+    }
+
+    /**
+     * Gets the symbol of a live order.
+     *
+     * @param orderId the order id
+     * @return the symbol id, or -1 if the order is filled or unknown
+     */
+    int getSymbolId(long orderId) {
+        orderPool.enter();
+        try {
+            Order order = orderIndex.get(orderId);
+            return order == null ? -1 : order.getSymbolId();
+        } finally {
+            orderPool.exit();
+        }
+    }
+
+    /**
+     * Gets the quantity an order still has open.
+     *
+     * @param orderId the id returned by addOrder
+     * @return the open quantity, 0 if the order is filled or unknown
+     */
+    public int getOpenQuantity(long orderId) {
+        orderPool.enter();
+        try {
+            Order order = orderIndex.get(orderId);
+            return order == null ? 0 : order.getQuantity();
+        } finally {
+            orderPool.exit();
+        }
+    }
+
+    /**
+     * Gets how many adds lost their first attempts to concurrent adds and removals on the same
+     * list and had to back off, over every book. A rising count means hot symbols are contended.
+     *
+     * @return the number of contended adds so far
+     */
+    public long getContendedAddCount() {
+        return orderBook.getContendedAddCount();
+    }
+
+    /**
+     * Gets how many contended adds kept failing long enough to yield the thread, over every book.
+     *
+     * @return the number of yielded adds so far
+     */
+    public long getYieldedAddCount() {
+        return orderBook.getYieldedAddCount();
+    }
+
+    /**
+     * Registers a ticker, or looks it up if it is already known.
+     *
+     * @param ticker the stock ticker symbol
+     * @return the symbol id to use with the fast addOrder path
+     */
+    public int registerSymbol(String ticker) {
+        return symbols.register(ticker);
+    }
+
+    /**
+     * Sets the price increment of a ticker. Call before the ticker is traded.
+     *
+     * @param ticker   the stock ticker symbol
+     * @param tickSize the minimum price increment
+     */
+    public void setTickSize(String ticker, double tickSize) {
+        symbols.setTickSize(symbols.register(ticker), new TickSize(tickSize));
     }
 
     /**
@@ -59,36 +597,307 @@ public class TradingEngine {
      * @param ticker the stock ticker symbol
      */
     public void matchOrder(String ticker) {
-        int tickerIndex = TickerHasher.hash(ticker);
-        matchOrderByIndex(tickerIndex);
+        matchOrder(symbols.register(ticker));
+    }
+
+    /**
+     * Attempts to match buy and sell orders for a symbol id.
+     *
+     * @param symbolId the symbol id
+     */
+    public void matchOrder(int symbolId) {
+        SymbolBook book = orderBook.findBook(symbolId);
+        if (book == null) {
+            return; // Never traded, nothing to match
+        }
+        orderPool.enter();
+        try {
+            // An explicit request, finish it here instead of leaving a continuation
+            book.requestMatch();
+            drainMatchRequests(book, false);
+        } finally {
+            orderPool.exit();
+        }
     }
 
     /**
-     * Implementation of order matching for a specific ticker index.
-     * Matches buy and sell orders according to price priority.
-     * Improved to handle concurrent modifications more robustly.
-     * Time complexity: O(n) where n is the number of orders.
+     * Reports what matching has done to an order so far, from its open quantity.
      *
-     * @param tickerIndex the hashed ticker index
+     * @param orderId  the order id, or REJECTED
+     * @param quantity the quantity submitted
+     * @return the report
      */
-    private void matchOrderByIndex(int tickerIndex) {
-        OrderList buyList = orderBook.getBuyOrdersByIndex(tickerIndex);
-        OrderList sellList = orderBook.getSellOrdersByIndex(tickerIndex);
+    ExecutionReport report(long orderId, int quantity) {
+        if (orderId == REJECTED) {
+            return new ExecutionReport(orderId, ExecutionReport.Status.REJECTED, quantity, 0);
+        }
+        int open = getOpenQuantity(orderId);
+        ExecutionReport.Status status = open == quantity ? ExecutionReport.Status.RESTING
+                : open == 0 ? ExecutionReport.Status.FILLED
+                : ExecutionReport.Status.PARTIALLY_FILLED;
+        return new ExecutionReport(orderId, status, quantity, quantity - open);
+    }
+
+    /**
+     * Checks whether a symbol's best bid reaches its best offer, as it does while a
+     * continuation of a sliced engine is still pending for it.
+     *
+     * @param symbolId the symbol id
+     * @return true if the book is crossed
+     */
+    boolean isCrossed(int symbolId) {
+        SymbolBook book = orderBook.findBook(symbolId);
+        if (book == null) {
+            return false;
+        }
+        orderPool.enter();
+        try {
+            return isCrossed(book);
+        } finally {
+            orderPool.exit();
+        }
+    }
+
+    /**
+     * Runs the next slice of a book left crossed by an earlier slice.
+     * Call only from the single writer of an engine created to match in slices.
+     *
+     * @return true if a slice was run, false if none was pending
+     */
+    boolean runPendingSlice() {
+        SymbolBook book = pendingSlices == null ? null : pendingSlices.poll();
+        if (book == null) {
+            return false;
+        }
+        book.clearDirty();
+        orderPool.enter();
+        try {
+            drainMatchRequests(book, true);
+        } finally {
+            orderPool.exit();
+            // After any follow-up slice was queued, so the count never reads 0 in between
+            unfinishedSlices.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Checks for continuations not yet finished. Safe to call from any thread.
+     *
+     * @return true if some book is still waiting for or running a slice
+     */
+    boolean hasPendingSlices() {
+        return unfinishedSlices.get() > 0;
+    }
+
+    /**
+     * Sends every fill from now on to a trade stream. Set it before trading starts;
+     * fills made while the stream is being swapped may go to either stream.
+     *
+     * @param tradeStream the stream, or null to stop reporting fills
+     */
+    public void setTradeStream(TradeStream tradeStream) {
+        this.tradeStream = tradeStream;
+    }
+
+    /**
+     * Waits until the match pool has no dirty symbols left to match.
+     * Returns at once for an engine that matches inline.
+     *
+     * @param timeout the longest time to wait
+     * @param unit    the unit of timeout
+     * @return true if matching settled, false if the timeout elapsed first
+     */
+    public boolean awaitMatching(long timeout, TimeUnit unit) {
+        return matchPool == null || matchPool.awaitQuiescence(timeout, unit);
+    }
+
+    /**
+     * Copies the best bid and offer of a symbol into a caller-supplied holder.
+     * Never blocks or allocates, so it can be polled from strategy threads at any rate.
+     *
+     * @param symbolId the symbol id
+     * @param into     the holder to fill
+     * @return true if the holder was filled, false if the symbol has never been traded
+     */
+    public boolean getTopOfBook(int symbolId, TopOfBook into) {
+        SymbolBook book = orderBook.findBook(symbolId);
+        if (book == null) {
+            return false;
+        }
+        book.readTopOfBook(into);
+        return true;
+    }
+
+    /**
+     * Copies the best bid and offer of a ticker into a caller-supplied holder.
+     *
+     * @param ticker the stock ticker symbol
+     * @param into   the holder to fill
+     * @return true if the holder was filled, false if the ticker has never been traded
+     */
+    public boolean getTopOfBook(String ticker, TopOfBook into) {
+        int symbolId = symbols.lookup(ticker);
+        return symbolId >= 0 && getTopOfBook(symbolId, into);
+    }
+
+    /**
+     * Copies the top levels of one side of a symbol's book into a caller-supplied holder.
+     * Reads the per-level aggregates only, so the cost is O(N) in the levels copied.
+     *
+     * @param symbolId the symbol id
+     * @param isBuy    true for the bid side, false for the ask side
+     * @param into     the holder to fill, its capacity sets the number of levels
+     * @return the number of levels copied, 0 if the symbol has never been traded
+     */
+    public int getDepth(int symbolId, boolean isBuy, DepthSnapshot into) {
+        SymbolBook book = orderBook.findBook(symbolId);
+        if (book == null) {
+            into.setLevelCount(0);
+            return 0;
+        }
+        return (isBuy ? book.getBuyDepth() : book.getSellDepth()).snapshot(into);
+    }
+
+    /**
+     * Copies the top levels of one side of a ticker's book into a caller-supplied holder.
+     *
+     * @param ticker the stock ticker symbol
+     * @param isBuy  true for the bid side, false for the ask side
+     * @param into   the holder to fill
+     * @return the number of levels copied
+     */
+    public int getDepth(String ticker, boolean isBuy, DepthSnapshot into) {
+        return getDepth(symbols.lookup(ticker), isBuy, into); // Unknown tickers look up as -1, which has no book
+    }
+
+    /**
+     * Gets a book matched after a change that may have crossed it. The caller raises the
+     * book's match request before linking the change, so a sweeper never finds a crossing
+     * order without a request outstanding.
+     * Inline engines match on the calling thread. Engines with a match pool hand the book
+     * to the pool, unless it is already waiting there.
+     * Must be called inside an OrderPool enter/exit section.
+     *
+     * @param book the book whose lists may now cross
+     */
+    private void serveMatchRequests(SymbolBook book) {
+        if (matchPool == null) {
+            drainMatchRequests(book, pendingSlices != null);
+        } else {
+            schedule(book);
+        }
+    }
+
+    /**
+     * Queues a book that has a request outstanding for a later slice: on the match pool, or on
+     * the pending slices of a single-writer engine. Does nothing if the book is already queued.
+     *
+     * @param book the book
+     */
+    private void schedule(SymbolBook book) {
+        if (!book.tryMarkDirty()) {
+            return; // Already queued, the queued slice will see the request
+        }
+        if (matchPool == null) {
+            unfinishedSlices.incrementAndGet();
+            pendingSlices.add(book);
+            return;
+        }
+        Runnable task = book.getMatchTask();
+        if (task == null) {
+            task = () -> matchDirty(book);
+            book.setMatchTask(task); // Racing adders may each make one, any of them will do
+        }
+        try {
+            matchPool.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Pool shut down, do not leave the book crossed
+            book.clearDirty();
+            drainMatchRequests(book, false);
+        }
+    }
+
+    // Runs on the match pool for one dirty book
+    private void matchDirty(SymbolBook book) {
+        // Clear first, so a request left from here on queues the book again
+        book.clearDirty();
+        orderPool.enter();
+        try {
+            drainMatchRequests(book, true);
+        } catch (RuntimeException e) {
+            logger.error("Matching failed for symbol id {}", book.getSymbolId(), e);
+        } finally {
+            orderPool.exit();
+        }
+    }
+
+    /**
+     * Serves the outstanding match requests of a book, combining concurrent callers.
+     * If another thread is already matching the book, that thread serves the requests and this
+     * call returns at once. Otherwise this thread becomes the matcher and runs slices until no
+     * requests are left and the book is uncrossed, so concurrent adders never race each other
+     * for the same heads. With mayDefer, a book still crossed after one slice is scheduled to
+     * continue later instead, so other symbols get a turn first.
+     * Must be called inside an OrderPool enter/exit section.
+     *
+     * @param book     the book
+     * @param mayDefer true if the rest may be left to a continuation
+     */
+    private void drainMatchRequests(SymbolBook book, boolean mayDefer) {
+        while (book.tryAcquireMatcher()) {
+            boolean crossed = false;
+            try {
+                while (!crossed && book.takeMatchRequests() > 0) {
+                    do {
+                        crossed = runMatching(book);
+                    } while (crossed && !mayDefer);
+                }
+            } finally {
+                book.releaseMatcher();
+            }
+            if (crossed) {
+                // Slice used up with the book still crossed, continue after other symbols
+                book.requestMatch();
+                schedule(book);
+                return;
+            }
+            if (!book.hasMatchRequests()) {
+                return;
+            }
+            // A request slipped in between the last take and the release, take the flag again
+        }
+    }
+
+    // True if the best bid reaches the best offer
+    private static boolean isCrossed(SymbolBook book) {
+        Order topBuy = book.getBuyOrders().peek();
+        Order topSell = book.getSellOrders().peek();
+        return topBuy != null && topSell != null && topBuy.getPriceTicks() >= topSell.getPriceTicks();
+    }
+
+    // One matching slice; only the thread holding the book's matcher flag runs it.
+    // Returns true if the slice ran out of budget before the book was uncrossed.
+    private boolean runMatching(SymbolBook book) {
+        OrderList buyList = book.getBuyOrders();
+        OrderList sellList = book.getSellOrders();
 
-        int maxIterations = 100; // Prevent potential infinite loops
         int iteration = 0;
+        boolean uncrossed = false;
 
-        while (iteration < maxIterations) {
+        while (iteration < MATCH_SLICE) {
             iteration++;
 
             Order topBuy = buyList.peek();
             Order topSell = sellList.peek();
 
             if (topBuy == null || topSell == null) {
+                uncrossed = true;
                 break;
             }
 
-            if (topBuy.getPrice() < topSell.getPrice()) {
+            if (topBuy.getPriceTicks() < topSell.getPriceTicks()) {
+                uncrossed = true;
                 break; // No match possible
             }
 
@@ -96,29 +905,66 @@ public class TradingEngine {
             int sellQty = topSell.getQuantity();
 
             if (buyQty == 0 || sellQty == 0) {
-                if (buyQty == 0) buyList.removeHead();
-                if (sellQty == 0) sellList.removeHead();
+                if (buyQty == 0) removeFilled(buyList, topBuy);
+                if (sellQty == 0) removeFilled(sellList, topSell);
                 continue;
             }
 
             int matchQty = Math.min(buyQty, sellQty);
 
-            boolean buyUpdated = topBuy.updateQuantity(buyQty, buyQty - matchQty);
-            boolean sellUpdated = topSell.updateQuantity(sellQty, sellQty - matchQty);
-
-            if (!buyUpdated || !sellUpdated) {
-                // Give other threads a chance if CAS fails
-                Thread.yield();
+            // Both sides change or neither does: lock the buy, take from the sell, then commit
+            // the buy, or roll it back if a cancel or amend got to the sell first
+            if (!topBuy.lockQuantity(buyQty)) {
+                continue; // Only a cancel or amend can have changed the quantity, look at the heads again
+            }
+            if (!topSell.updateQuantity(sellQty, sellQty - matchQty)) {
+                topBuy.unlockQuantity(buyQty);
                 continue;
             }
+            topBuy.unlockQuantity(buyQty - matchQty);
+
+            // Mirror the fill in the depth, the order leaves its level when it hits zero
+            book.getBuyDepth().reduce(topBuy.getPriceTicks(), matchQty, buyQty == matchQty);
+            book.getSellDepth().reduce(topSell.getPriceTicks(), matchQty, sellQty == matchQty);
+
+            // Both orders were resting, the trade is at the price of the one that rested first
+            publishTrade(book.getSymbolId(), topBuy.getOrderId(), topSell.getOrderId(),
+                    topBuy.getSequence() < topSell.getSequence() ? topBuy.getPriceTicks() : topSell.getPriceTicks(),
+                    matchQty);
 
             if (buyQty - matchQty == 0) {
-                buyList.removeHead();
+                removeFilled(buyList, topBuy);
             }
 
             if (sellQty - matchQty == 0) {
-                sellList.removeHead();
+                removeFilled(sellList, topSell);
             }
         }
+
+        // Refresh the best bid and offer readers see
+        book.publishTopOfBook();
+        return !uncrossed;
+    }
+
+    // Reports one fill to the trade stream, if there is one
+    private void publishTrade(int symbolId, long buyOrderId, long sellOrderId, long priceTicks, int quantity) {
+        TradeStream stream = tradeStream;
+        if (stream != null) {
+            stream.publish(symbolId, buyOrderId, sellOrderId, priceTicks, quantity);
+        }
+    }
+
+    /**
+     * Removes a filled or cancelled order from its list and hands it back to the pool.
+     * If another thread already removed it, that thread recycles it instead.
+     *
+     * @param list  the list holding the order
+     * @param order the order whose quantity reached zero
+     */
+    private void removeFilled(OrderList list, Order order) {
+        if (list.remove(order)) {
+            orderIndex.remove(order.getOrderId(), order);
+            orderPool.retire(order);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package com.stocktrading.engine;
+
+/**
+ * How an engine-owned thread waits when its queue is empty.
+ * Trades latency against CPU: busy-spin on dedicated cores, parking or blocking on shared hosts.
+ * One instance may be shared by every thread of an engine.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called each time a poll finds no work.
+     *
+     * @param idleCount the number of consecutive empty polls, starting at 1
+     */
+    void idle(int idleCount);
+
+    /**
+     * Called after new work has been made visible, so a blocked waiter can resume.
+     * Strategies that never block ignore it.
+     */
+    default void signal() {
+    }
+}
@@ -0,0 +1,33 @@
+package com.stocktrading.engine;
+
+/**
+ * Spins for a while, then yields the core on every empty poll. The default: low latency,
+ * and other runnable threads still get the core, but an idle thread still shows as busy.
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+    private static final int DEFAULT_SPINS = 100;
+
+    private final int spins;
+
+    public YieldingWaitStrategy() {
+        this(DEFAULT_SPINS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param spins empty polls that spin before the thread starts yielding
+     */
+    public YieldingWaitStrategy(int spins) {
+        this.spins = spins;
+    }
+
+    @Override
+    public void idle(int idleCount) {
+        if (idleCount < spins) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.stocktrading.model;
+
+/**
+ * Caller-owned holder for the top levels of one side of a book.
+ * Sized once for the number of levels wanted and refilled in place without allocating.
+ */
+public class DepthSnapshot {
+    private final long[] priceTicks;
+    private final long[] quantities;
+    private final int[] orderCounts;
+    private int levelCount;
+
+    /**
+     * Constructor
+     *
+     * @param maxLevels the number of levels to hold
+     */
+    public DepthSnapshot(int maxLevels) {
+        if (maxLevels <= 0) {
+            throw new IllegalArgumentException("Invalid level count: " + maxLevels);
+        }
+        this.priceTicks = new long[maxLevels];
+        this.quantities = new long[maxLevels];
+        this.orderCounts = new int[maxLevels];
+    }
+
+    /**
+     * Overwrites one level, called by the engine while filling the snapshot.
+     *
+     * @param index the level, 0 is the best price
+     * @param price the level price in ticks
+     * @param quantity the total quantity resting at the level
+     * @param orderCount the number of orders resting at the level
+     */
+    public void setLevel(int index, long price, long quantity, int orderCount) {
+        priceTicks[index] = price;
+        quantities[index] = quantity;
+        orderCounts[index] = orderCount;
+    }
+
+    public void setLevelCount(int levelCount) {
+        this.levelCount = levelCount;
+    }
+
+    // getter
+    public int capacity() {
+        return priceTicks.length;
+    }
+
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    public long getPriceTicks(int level) {
+        return priceTicks[level];
+    }
+
+    public long getQuantity(int level) {
+        return quantities[level];
+    }
+
+    public int getOrderCount(int level) {
+        return orderCounts[level];
+    }
+}
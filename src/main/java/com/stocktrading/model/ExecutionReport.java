@@ -0,0 +1,68 @@
+package com.stocktrading.model;
+
+/**
+ * The outcome of one order submission, as seen right after its matching pass.
+ * Later fills of a resting order are not reflected; poll getOpenQuantity for those.
+ */
+public class ExecutionReport {
+
+    /**
+     * What happened to the order in its matching pass.
+     */
+    public enum Status {
+        REJECTED,          // Invalid order, never reached a book
+        RESTING,           // Nothing filled, the whole quantity rests on the book
+        PARTIALLY_FILLED,  // Some quantity filled, the rest rests on the book
+        FILLED             // Fully filled
+    }
+
+    private final long orderId;
+    private final Status status;
+    private final int quantity;
+    private final int filledQuantity;
+
+    /**
+     * Constructor
+     *
+     * @param orderId the order id, or 0 if the order was rejected
+     * @param status what happened to the order
+     * @param quantity the quantity submitted
+     * @param filledQuantity the quantity filled in the matching pass
+     */
+    public ExecutionReport(long orderId, Status status, int quantity, int filledQuantity) {
+        this.orderId = orderId;
+        this.status = status;
+        this.quantity = quantity;
+        this.filledQuantity = filledQuantity;
+    }
+
+    // getter
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public int getFilledQuantity() {
+        return filledQuantity;
+    }
+
+    public int getOpenQuantity() {
+        return status == Status.REJECTED ? 0 : quantity - filledQuantity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ExecutionReport{#%d %s, qty=%d, filled=%d}",
+                orderId,
+                status,
+                quantity,
+                filledQuantity);
+    }
+}
@@ -0,0 +1,41 @@
+package com.stocktrading.model;
+
+/**
+ * A tradable symbol: its dense id in the SymbolDirectory, ticker and tick size.
+ * Immutable, so orders can share one instance.
+ */
+public final class Instrument {
+    private final int id;
+    private final String ticker;
+    private final TickSize tickSize;
+
+    /**
+     * Constructor
+     *
+     * @param id the symbol id assigned by the directory
+     * @param ticker the stock ticker symbol
+     * @param tickSize the minimum price increment
+     */
+    public Instrument(int id, String ticker, TickSize tickSize) {
+        this.id = id;
+        this.ticker = ticker;
+        this.tickSize = tickSize;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public TickSize getTickSize() {
+        return tickSize;
+    }
+
+    @Override
+    public String toString() {
+        return "Instrument{" + id + " " + ticker + ", tick=" + tickSize.getSize() + "}";
+    }
+}
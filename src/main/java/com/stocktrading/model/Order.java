@@ -1,68 +1,172 @@
 package com.stocktrading.model;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * Represents a stock order (buy or sell) in the trading system.
- * atomic variables are used for lock free operation.
+ * Quantity, version and next link are plain fields updated through VarHandles for lock free operation.
+ * Orders are recycled by OrderPool, so the identity fields are only fixed while the order is live.
  */
 public class Order {
+    private static final VarHandle QUANTITY;
+    private static final VarHandle VERSION;
+    private static final VarHandle NEXT;
+    private static final VarHandle REMOVAL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            QUANTITY = lookup.findVarHandle(Order.class, "quantity", int.class);
+            VERSION = lookup.findVarHandle(Order.class, "version", int.class);
+            NEXT = lookup.findVarHandle(Order.class, "next", Order.class);
+            REMOVAL = lookup.findVarHandle(Order.class, "removal", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     // add padding to avoid false sharing during multiple thread operation
     private long p1, p2, p3, p4, p5, p6, p7;  // Padding before fields
     private long q1, q2, q3, q4, q5, q6, q7;     // Padding after fields
-    private final boolean isBuy;              // True for buy, false for sell
-    private final String tickerSymbol;        // Stock ticker symbol
-    private final double price;               // Order price
-    private final AtomicInteger quantity;     // Order quantity,atomic for thread-safe updates
-    private final AtomicReference<Order> nextRef = new AtomicReference<>(null); // Next order in the linked list, atomic for safety
-    private final AtomicInteger version;      // Version for ABA problem prevention
-
+    private long orderId;                     // Engine-assigned id, kept for the life of the order
+    private boolean isBuy;                    // True for buy, false for sell
+    private Instrument instrument;            // Symbol id, ticker and tick size
+    private long priceTicks;                  // Order price in ticks of the instrument's tick size
+    private long sequence;                    // Arrival sequence, breaks ties between equal prices
+    private int quantity;                     // Order quantity, CAS through QUANTITY; -(q + 1) while locked for a fill
+    private Order next;                       // Next order in the linked list, CAS through NEXT
+    private int version;                      // Version for ABA problem prevention, CAS through VERSION
+    private int removal;                      // 1 once a thread has claimed the order's removal, CAS through REMOVAL
+    private Order removedNext;                // Successor when the next link was marked, set by the remover
+
+    // Pool bookkeeping, only touched by the thread that owns the order in OrderPool
+    long retireEpoch;
+    Order poolNext;
 
     /**
      * Constructor
      *
+     * @param orderId the id the engine assigned to this order
      * @param isBuy true if this is a buy order, false if it's a sell order
-     * @param tickerSymbol the stock ticker symbol
+     * @param instrument the symbol being traded
      * @param quantity the number of shares to buy or sell
-     * @param price the price per share
+     * @param priceTicks the price per share in ticks
+     * @param sequence the arrival sequence number, increasing with every order the engine accepts
      */
-    public Order(boolean isBuy, String tickerSymbol, int quantity, double price) {
+    public Order(long orderId, boolean isBuy, Instrument instrument, int quantity, long priceTicks, long sequence) {
+        this.orderId = orderId;
+        this.isBuy = isBuy;
+        this.instrument = instrument;
+        this.priceTicks = priceTicks;
+        this.sequence = sequence;
+        QUANTITY.setRelease(this, quantity);
+    }
+
+    // Reinitialize a recycled order, the list insert that follows publishes these writes
+    void reset(long orderId, boolean isBuy, Instrument instrument, int quantity, long priceTicks, long sequence) {
+        this.orderId = orderId;
         this.isBuy = isBuy;
-        this.tickerSymbol = tickerSymbol;
-        this.price = price;
-        this.quantity = new AtomicInteger(quantity);
-        this.version = new AtomicInteger(0);
+        this.instrument = instrument;
+        this.priceTicks = priceTicks;
+        this.sequence = sequence;
+        this.retireEpoch = 0;
+        this.poolNext = null;
+        this.removedNext = null;
+        REMOVAL.setRelease(this, 0);
+        NEXT.setRelease(this, (Order) null);
+        VERSION.getAndAdd(this, 1);
+        QUANTITY.setRelease(this, quantity);
     }
 
     // getter and setter
+    public long getOrderId() {
+        return orderId;
+    }
+
     public boolean isBuy() {
         return isBuy;
     }
 
+    public Instrument getInstrument() {
+        return instrument;
+    }
+
+    public int getSymbolId() {
+        return instrument.getId();
+    }
+
     public String getTickerSymbol() {
-        return tickerSymbol;
+        return instrument.getTicker();
     }
 
+    /**
+     * Gets the price as a decimal, converted from ticks.
+     *
+     * @return the price per share
+     */
     public double getPrice() {
-        return price;
+        return instrument.getTickSize().toPrice(priceTicks);
     }
 
+    public long getPriceTicks() {
+        return priceTicks;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
 
+    /**
+     * Gets the open quantity. While a fill holds the quantity locked this is the value
+     * from before the fill, which the fill either commits or restores.
+     *
+     * @return the open quantity
+     */
     public int getQuantity() {
-        return quantity.get();
+        int raw = (int) QUANTITY.getVolatile(this);
+        return raw < 0 ? -raw - 1 : raw;
     }
 
     public Order getNext() {
-        return nextRef.get();
+        return (Order) NEXT.getVolatile(this);
     }
 
     public void setNext(Order next) {
-        nextRef.set(next);
+        NEXT.setVolatile(this, next);
     }
 
     public boolean compareAndSetNext(Order expect, Order update) {
-        return nextRef.compareAndSet(expect, update);
+        return NEXT.compareAndSet(this, expect, update);
+    }
+
+    /**
+     * Claims the removal of this order from its list. Exactly one caller succeeds,
+     * so a cancel and a fill can never both unlink and recycle the same order.
+     *
+     * @return true if this caller now owns the removal, false if another thread does
+     */
+    public boolean claimRemoval() {
+        return REMOVAL.compareAndSet(this, 0, 1);
+    }
+
+    public boolean isRemovalClaimed() {
+        return (int) REMOVAL.getVolatile(this) != 0;
+    }
+
+    /**
+     * Gets the successor recorded when this order's next link was marked.
+     * Only meaningful once getNext() returns this order itself.
+     *
+     * @return the order that followed this one when it was marked
+     */
+    public Order getRemovedNext() {
+        return removedNext;
+    }
+
+    // Written by the removal owner before the marking CAS, which publishes it
+    public void setRemovedNext(Order removedNext) {
+        this.removedNext = removedNext;
     }
 
     /**
@@ -74,7 +178,29 @@ public class Order {
      * @return true if successful, false otherwise
      */
     public boolean updateQuantity(int expectedQuantity, int newQuantity) {
-        return quantity.compareAndSet(expectedQuantity, newQuantity);
+        return QUANTITY.compareAndSet(this, expectedQuantity, newQuantity);
+    }
+
+    /**
+     * Locks the quantity for a fill that must also update another order.
+     * While locked, every updateQuantity fails, so a cancel or amend waits for the fill
+     * to commit or roll back instead of racing it. Only the book's matcher locks,
+     * and it releases before touching anything else.
+     *
+     * @param expectedQuantity the expected current quantity, positive
+     * @return true if the quantity is now locked by the caller
+     */
+    public boolean lockQuantity(int expectedQuantity) {
+        return QUANTITY.compareAndSet(this, expectedQuantity, -expectedQuantity - 1);
+    }
+
+    /**
+     * Releases a quantity locked by lockQuantity.
+     *
+     * @param newQuantity the quantity after the fill, or the locked quantity to roll back
+     */
+    public void unlockQuantity(int newQuantity) {
+        QUANTITY.setVolatile(this, newQuantity);
     }
 
     /**
@@ -84,7 +210,7 @@ public class Order {
      * @return the current version
      */
     public int getVersion() {
-        return version.get();
+        return (int) VERSION.getVolatile(this);
     }
 
     /**
@@ -94,15 +220,17 @@ public class Order {
      * @return true if successful, false otherwise
      */
     public boolean incrementVersion(int expectedVersion) {
-        return version.compareAndSet(expectedVersion, expectedVersion + 1);
+        return VERSION.compareAndSet(this, expectedVersion, expectedVersion + 1);
     }
 
     @Override
     public String toString() {
-        return String.format("Order{%s %s, qty=%d, price=%.2f}",
+        return String.format("Order{#%d %s %s, qty=%d, price=%.2f, seq=%d}",
+                orderId,
                 (isBuy ? "BUY" : "SELL"),
-                tickerSymbol,
-                quantity.get(),
-                price);
+                getTickerSymbol(),
+                getQuantity(),
+                getPrice(),
+                sequence);
     }
-}
\ No newline at end of file
+}
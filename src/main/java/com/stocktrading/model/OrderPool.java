@@ -0,0 +1,183 @@
+package com.stocktrading.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Recycles Order objects so the order path does not allocate in steady state.
+ *
+ * Reclamation is epoch based: a thread calls enter() before it touches any order list and exit()
+ * when done. A retired order is only handed out again once every thread that was inside at the
+ * time of retirement has left, so a concurrent reader can never see a node being reused.
+ * Free and retired orders are kept per thread, so acquire and retire need no shared CAS.
+ */
+public class OrderPool {
+    private static final long IDLE = Long.MAX_VALUE;
+    private static final int MAX_THREADS = 256;
+    private static final int STRIDE = 8;              // One reservation per cache line
+    private static final int RECLAIM_BATCH = 64;      // Retired orders collected before a reclaim pass
+    private static final int MAX_LIMBO = 1 << 16;     // Above this, old retirees are left to the GC
+    private static final int MAX_FREE = 1 << 14;      // Per-thread free list cap
+
+    private final AtomicLong epoch = new AtomicLong(1);
+    private final AtomicLongArray reservations = new AtomicLongArray(MAX_THREADS * STRIDE);
+    private final AtomicReferenceArray<Thread> owners = new AtomicReferenceArray<>(MAX_THREADS);
+    private final AtomicLong created = new AtomicLong();
+    // Threads without a slot that are inside enter()/exit(); while any exist nothing is reclaimed
+    private final AtomicInteger unreservedReaders = new AtomicInteger();
+    private final ThreadLocal<Local> local = ThreadLocal.withInitial(this::register);
+
+    public OrderPool() {
+        for (int i = 0; i < MAX_THREADS; i++) {
+            reservations.set(i * STRIDE, IDLE);
+        }
+    }
+
+    /**
+     * Marks the calling thread as reading order lists. Calls may nest.
+     */
+    public void enter() {
+        Local l = local.get();
+        if (l.depth++ == 0) {
+            if (l.slot >= 0) {
+                reservations.set(l.slot * STRIDE, epoch.get());
+            } else {
+                unreservedReaders.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Marks the end of the matching enter() call.
+     */
+    public void exit() {
+        Local l = local.get();
+        if (--l.depth == 0) {
+            if (l.slot >= 0) {
+                reservations.set(l.slot * STRIDE, IDLE);
+            } else {
+                unreservedReaders.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns an initialized order, reusing a reclaimed one when available.
+     *
+     * @param orderId the id the engine assigned to the order
+     * @param isBuy true if this is a buy order, false if it's a sell order
+     * @param instrument the symbol being traded
+     * @param quantity the number of shares to buy or sell
+     * @param priceTicks the price per share in ticks
+     * @param sequence the arrival sequence number
+     * @return the order
+     */
+    public Order acquire(long orderId, boolean isBuy, Instrument instrument, int quantity, long priceTicks, long sequence) {
+        Local l = local.get();
+        Order order = l.free;
+        if (order == null) {
+            created.incrementAndGet();
+            return new Order(orderId, isBuy, instrument, quantity, priceTicks, sequence);
+        }
+        l.free = order.poolNext;
+        l.freeSize--;
+        order.reset(orderId, isBuy, instrument, quantity, priceTicks, sequence);
+        return order;
+    }
+
+    /**
+     * Hands back an order that has been unlinked from its list.
+     * It will be reused once no thread can still be reading it.
+     *
+     * @param order the order to recycle
+     */
+    public void retire(Order order) {
+        Local l = local.get();
+        if (l.slot < 0) {
+            return; // Unregistered thread, leave the order to the GC
+        }
+
+        order.retireEpoch = epoch.get();
+        order.poolNext = null;
+        if (l.limboTail == null) {
+            l.limboHead = order;
+        } else {
+            l.limboTail.poolNext = order;
+        }
+        l.limboTail = order;
+
+        l.limboSize++;
+        if (++l.sinceReclaim >= RECLAIM_BATCH) {
+            l.sinceReclaim = 0;
+            reclaim(l);
+        }
+    }
+
+    /**
+     * Gets the number of orders this pool had to allocate.
+     *
+     * @return the number of Order objects created
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    // Move every retiree older than all active readers to the free list
+    private void reclaim(Local l) {
+        epoch.incrementAndGet();
+        long oldestActive = unreservedReaders.get() > 0 ? 0 : IDLE;
+        for (int i = 0; i < MAX_THREADS && oldestActive > 0; i++) {
+            oldestActive = Math.min(oldestActive, reservations.get(i * STRIDE));
+        }
+
+        while (l.limboHead != null
+                && (l.limboHead.retireEpoch < oldestActive || l.limboSize > MAX_LIMBO)) {
+            Order order = l.limboHead;
+            boolean safe = order.retireEpoch < oldestActive;
+            l.limboHead = order.poolNext;
+            l.limboSize--;
+            if (safe && l.freeSize < MAX_FREE) {
+                order.poolNext = l.free;
+                l.free = order;
+                l.freeSize++;
+            } else {
+                order.poolNext = null;
+            }
+        }
+        if (l.limboHead == null) {
+            l.limboTail = null;
+        }
+    }
+
+    // Claim a reservation slot, reusing slots of threads that have died
+    private Local register() {
+        Thread current = Thread.currentThread();
+        for (int i = 0; i < MAX_THREADS; i++) {
+            Thread owner = owners.get(i);
+            if ((owner == null || !owner.isAlive()) && owners.compareAndSet(i, owner, current)) {
+                reservations.set(i * STRIDE, IDLE);
+                return new Local(i);
+            }
+        }
+        // No slot left, this thread allocates and never recycles
+        return new Local(-1);
+    }
+
+    // Per-thread pool state
+    private static final class Local {
+        private final int slot;
+        private int depth;
+        private Order free;
+        private int freeSize;
+        private Order limboHead;
+        private Order limboTail;
+        private int limboSize;
+        private int sinceReclaim;
+
+        private Local(int slot) {
+            this.slot = slot;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.stocktrading.model;
+
+/**
+ * The minimum price increment of an instrument.
+ * Converts between decimal prices and the long tick counts the engine stores and compares.
+ */
+public final class TickSize {
+    /** One cent, the default for every ticker. */
+    public static final TickSize CENT = new TickSize(0.01);
+
+    private final double size;
+    // Ticks per 1.0 of price when the size divides it evenly (0.01 -> 100), otherwise 0.
+    // Dividing by it converts back exactly, multiplying by 0.01 would not.
+    private final double ticksPerUnit;
+
+    /**
+     * Constructor
+     *
+     * @param size the price increment, must be positive
+     */
+    public TickSize(double size) {
+        if (!(size > 0) || Double.isInfinite(size)) {
+            throw new IllegalArgumentException("Tick size must be positive: " + size);
+        }
+        this.size = size;
+        double perUnit = Math.rint(1.0 / size);
+        this.ticksPerUnit = perUnit >= 1 && Math.abs(perUnit * size - 1.0) < 1e-12 ? perUnit : 0;
+    }
+
+    /**
+     * Converts a price to the nearest whole number of ticks.
+     *
+     * @param price the price
+     * @return the price in ticks
+     */
+    public long toTicks(double price) {
+        return ticksPerUnit != 0 ? Math.round(price * ticksPerUnit) : Math.round(price / size);
+    }
+
+    /**
+     * Converts a tick count back to a price.
+     *
+     * @param ticks the price in ticks
+     * @return the price
+     */
+    public double toPrice(long ticks) {
+        return ticksPerUnit != 0 ? ticks / ticksPerUnit : ticks * size;
+    }
+
+    public double getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "TickSize{" + size + "}";
+    }
+}
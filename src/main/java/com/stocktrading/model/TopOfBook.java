@@ -0,0 +1,72 @@
+package com.stocktrading.model;
+
+/**
+ * Caller-owned holder for the best bid and offer of one symbol.
+ * Reuse one instance per polling thread, the engine fills it in place without allocating.
+ * Prices are in ticks; an empty side reads as price 0 and quantity 0.
+ */
+public class TopOfBook {
+    private long bidPriceTicks;
+    private long bidQuantity;
+    private long askPriceTicks;
+    private long askQuantity;
+    private long sequence;
+
+    /**
+     * Overwrites every field, called by the engine with a consistent snapshot.
+     *
+     * @param bidPriceTicks the best bid price in ticks
+     * @param bidQuantity the quantity at the best bid
+     * @param askPriceTicks the best ask price in ticks
+     * @param askQuantity the quantity at the best ask
+     * @param sequence the number of updates published for the symbol so far
+     */
+    public void set(long bidPriceTicks, long bidQuantity, long askPriceTicks, long askQuantity, long sequence) {
+        this.bidPriceTicks = bidPriceTicks;
+        this.bidQuantity = bidQuantity;
+        this.askPriceTicks = askPriceTicks;
+        this.askQuantity = askQuantity;
+        this.sequence = sequence;
+    }
+
+    // getter
+    public long getBidPriceTicks() {
+        return bidPriceTicks;
+    }
+
+    public long getBidQuantity() {
+        return bidQuantity;
+    }
+
+    public long getAskPriceTicks() {
+        return askPriceTicks;
+    }
+
+    public long getAskQuantity() {
+        return askQuantity;
+    }
+
+    /**
+     * Gets the update sequence. It increases with every published change,
+     * so a poller can tell whether anything moved since its last read.
+     *
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean hasBid() {
+        return bidQuantity > 0;
+    }
+
+    public boolean hasAsk() {
+        return askQuantity > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TopOfBook{bid=" + bidQuantity + "@" + bidPriceTicks
+                + ", ask=" + askQuantity + "@" + askPriceTicks + ", seq=" + sequence + "}";
+    }
+}
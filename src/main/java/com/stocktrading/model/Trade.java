@@ -0,0 +1,79 @@
+package com.stocktrading.model;
+
+/**
+ * Flyweight view of one trade record in a shared long buffer.
+ * The record lives in the buffer, this object only points at it; wrap moves it to another
+ * record, so one instance can read any number of trades without allocating.
+ * A wrapped record is only valid until the buffer slot is reused.
+ */
+public class Trade {
+    // Field offsets within a record
+    public static final int SEQUENCE = 0;
+    public static final int SYMBOL_ID = 1;
+    public static final int BUY_ORDER_ID = 2;
+    public static final int SELL_ORDER_ID = 3;
+    public static final int PRICE_TICKS = 4;
+    public static final int QUANTITY = 5;
+    public static final int TIMESTAMP = 6;
+    /** Longs per record, a power of two so a record never straddles more cache lines than needed. */
+    public static final int RECORD_LONGS = 8;
+
+    private long[] buffer;
+    private int offset;
+
+    /**
+     * Points this view at a record.
+     *
+     * @param buffer the buffer holding the record
+     * @param offset the index of the record's first long
+     */
+    public void wrap(long[] buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    // getter
+    public long getSequence() {
+        return buffer[offset + SEQUENCE];
+    }
+
+    public int getSymbolId() {
+        return (int) buffer[offset + SYMBOL_ID];
+    }
+
+    public long getBuyOrderId() {
+        return buffer[offset + BUY_ORDER_ID];
+    }
+
+    public long getSellOrderId() {
+        return buffer[offset + SELL_ORDER_ID];
+    }
+
+    public long getPriceTicks() {
+        return buffer[offset + PRICE_TICKS];
+    }
+
+    public int getQuantity() {
+        return (int) buffer[offset + QUANTITY];
+    }
+
+    /**
+     * Gets when the fill happened, from System.nanoTime, so only differences are meaningful.
+     *
+     * @return the timestamp in nanoseconds
+     */
+    public long getTimestampNanos() {
+        return buffer[offset + TIMESTAMP];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Trade{#%d symbol=%d, buy=%d, sell=%d, qty=%d, priceTicks=%d}",
+                getSequence(),
+                getSymbolId(),
+                getBuyOrderId(),
+                getSellOrderId(),
+                getQuantity(),
+                getPriceTicks());
+    }
+}
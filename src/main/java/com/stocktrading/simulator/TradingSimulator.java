@@ -17,6 +17,7 @@ public class TradingSimulator {
     private final TradingEngine engine;
     private final Random random = new Random();
     private final String[] tickers;
+    private final int[] symbolIds;
 
     /**
      * Constructor
@@ -27,6 +28,10 @@ public class TradingSimulator {
     public TradingSimulator(TradingEngine engine, int tickerCount) {
         this.engine = engine;
         this.tickers = generateTickers(tickerCount);
+        this.symbolIds = new int[tickers.length];
+        for (int i = 0; i < tickers.length; i++) {
+            symbolIds[i] = engine.registerSymbol(tickers[i]);
+        }
     }
 
     /**
@@ -36,7 +41,7 @@ public class TradingSimulator {
      * @return an array of ticker symbols
      */
     private String[] generateTickers(int count) {
-        String[] result = new String[Math.min(count, 1024)];
+        String[] result = new String[count];
         for (int i = 0; i < result.length; i++) {
             result[i] = "STOCK" + i;
         }
@@ -62,12 +67,12 @@ public class TradingSimulator {
                 try {
                     // Generate random order parameters
                     boolean isBuy = random.nextBoolean();
-                    String ticker = tickers[random.nextInt(tickers.length)];
+                    int symbolId = symbolIds[random.nextInt(symbolIds.length)];
                     int quantity = 100 * (random.nextInt(10) + 1); // 100-1000
-                    double price = 10.0 + random.nextDouble() * 90.0; // 10.0-100.0
+                    long priceTicks = 1000 + random.nextInt(9001); // 10.00-100.00 in cents
 
-                    // Add the order
-                    engine.addOrder(isBuy, ticker, quantity, price);
+                    // Add the order through the symbol id fast path
+                    engine.addOrderTicks(isBuy, symbolId, quantity, priceTicks);
 
                     // Log progress periodically
                     if (orderIndex % 1000 == 0) {
@@ -0,0 +1,85 @@
+package com.stocktrading.structure;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free array that grows on demand.
+ * Elements live in fixed-size chunks allocated on first write, so memory follows the
+ * highest index in use and existing elements are never copied or moved.
+ *
+ * @param <T> the element type
+ */
+public class ChunkedArray<T> {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> chunks;
+    private final int maxSize;
+
+    /**
+     * Constructor
+     *
+     * @param maxSize the largest number of elements the array may ever hold
+     */
+    public ChunkedArray(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid maximum size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.chunks = new AtomicReferenceArray<>((int) (((long) maxSize + CHUNK_MASK) >>> CHUNK_SHIFT));
+    }
+
+    /**
+     * Gets an element.
+     *
+     * @param index the index
+     * @return the element, or null if it was never set or the index is out of range
+     */
+    public T get(int index) {
+        if (index < 0 || index >= maxSize) {
+            return null;
+        }
+        AtomicReferenceArray<T> chunk = chunks.get(index >>> CHUNK_SHIFT);
+        return chunk == null ? null : chunk.get(index & CHUNK_MASK);
+    }
+
+    /**
+     * Sets an element, allocating its chunk if needed.
+     *
+     * @param index the index
+     * @param value the new value
+     */
+    public void set(int index, T value) {
+        chunkFor(index).set(index & CHUNK_MASK, value);
+    }
+
+    /**
+     * Atomically sets an element if it currently holds the expected value.
+     *
+     * @param index the index
+     * @param expect the expected value
+     * @param update the new value
+     * @return true if successful, false otherwise
+     */
+    public boolean compareAndSet(int index, T expect, T update) {
+        return chunkFor(index).compareAndSet(index & CHUNK_MASK, expect, update);
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    private AtomicReferenceArray<T> chunkFor(int index) {
+        if (index < 0 || index >= maxSize) {
+            throw new IndexOutOfBoundsException("Index " + index + " outside 0.." + (maxSize - 1));
+        }
+        int chunkIndex = index >>> CHUNK_SHIFT;
+        AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            AtomicReferenceArray<T> created = new AtomicReferenceArray<>(CHUNK_SIZE);
+            chunk = chunks.compareAndSet(chunkIndex, null, created) ? created : chunks.get(chunkIndex);
+        }
+        return chunk;
+    }
+}
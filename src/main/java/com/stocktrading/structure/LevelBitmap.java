@@ -0,0 +1,158 @@
+package com.stocktrading.structure;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free hierarchical bitset of non-empty price levels.
+ * The bottom layer has one bit per level; each layer above has one bit per word of the layer
+ * below, set while that word may be non-zero. Finding the next set bit reads one word per layer
+ * with Long.numberOfTrailingZeros, so it does not depend on how many empty levels lie between.
+ *
+ * Summary bits may briefly stay set over an empty word, which a search simply skips. They are
+ * never left clear over a non-empty word: a clear re-checks the word and sets the bit back.
+ */
+public class LevelBitmap {
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+
+    // layers[0] has one bit per level, the last layer fits in a single word
+    private final AtomicLongArray[] layers;
+    private final int size;
+
+    /**
+     * Constructor
+     *
+     * @param size the number of levels
+     */
+    public LevelBitmap(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid bitmap size: " + size);
+        }
+        this.size = size;
+        int depth = 1;
+        for (long bits = size; bits > 64; bits = (bits + WORD_MASK) >>> WORD_SHIFT) {
+            depth++;
+        }
+        this.layers = new AtomicLongArray[depth];
+        long bits = size;
+        for (int i = 0; i < depth; i++) {
+            int words = (int) ((bits + WORD_MASK) >>> WORD_SHIFT);
+            layers[i] = new AtomicLongArray(words);
+            bits = words;
+        }
+    }
+
+    /**
+     * Marks a level as non-empty.
+     * Every layer is checked, so once this returns the level is visible to nextSetBit
+     * even if another thread setting a neighbouring level has not finished yet.
+     *
+     * @param index the level
+     */
+    public void set(int index) {
+        setFrom(0, index);
+    }
+
+    /**
+     * Marks a level as empty. Call only after seeing the level empty; the caller must
+     * re-check the level afterwards and set the bit again if an order arrived meanwhile.
+     *
+     * @param index the level
+     */
+    public void clear(int index) {
+        clearFrom(0, index);
+    }
+
+    /**
+     * Finds the first level at or after an index whose bit is set.
+     *
+     * @param from the first level to consider
+     * @return the level, or -1 if none is set
+     */
+    public int nextSetBit(int from) {
+        if (from >= size) {
+            return -1;
+        }
+        int layer = 0;
+        int bit = Math.max(from, 0);
+        while (true) {
+            int found = searchWord(layer, bit);
+            if (found >= 0) {
+                if (layer == 0) {
+                    return found;
+                }
+                // Descend into the first non-empty word below
+                layer--;
+                bit = found << WORD_SHIFT;
+                continue;
+            }
+            // Nothing left in this word, continue from the next word one layer up
+            int next = (bit >>> WORD_SHIFT) + 1;
+            if (layer + 1 == layers.length || next >= layers[layer].length()) {
+                return -1;
+            }
+            layer++;
+            bit = next;
+        }
+    }
+
+    public boolean get(int index) {
+        return (layers[0].get(index >>> WORD_SHIFT) & (1L << (index & WORD_MASK))) != 0;
+    }
+
+    // First set bit at or after bit within bit's own word, or -1
+    private int searchWord(int layer, int bit) {
+        AtomicLongArray words = layers[layer];
+        int word = bit >>> WORD_SHIFT;
+        if (word >= words.length()) {
+            return -1;
+        }
+        long bits = words.get(word) & (-1L << (bit & WORD_MASK));
+        return bits == 0 ? -1 : (word << WORD_SHIFT) + Long.numberOfTrailingZeros(bits);
+    }
+
+    private void setFrom(int layer, int bit) {
+        for (int i = layer; i < layers.length; i++) {
+            setBit(layers[i], bit);
+            bit >>>= WORD_SHIFT;
+        }
+    }
+
+    // Clear a bit; if its word empties, clear the summary bit above and re-check the word
+    private void clearFrom(int layer, int bit) {
+        long remaining = clearBit(layers[layer], bit);
+        int word = bit >>> WORD_SHIFT;
+        if (remaining == 0 && layer + 1 < layers.length) {
+            clearFrom(layer + 1, word);
+            if (layers[layer].get(word) != 0) {
+                setFrom(layer + 1, word); // Refilled meanwhile
+            }
+        }
+    }
+
+    private static void setBit(AtomicLongArray words, int bit) {
+        int word = bit >>> WORD_SHIFT;
+        long mask = 1L << (bit & WORD_MASK);
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0 || words.compareAndSet(word, current, current | mask)) {
+                return;
+            }
+        }
+    }
+
+    // Returns the word after clearing
+    private static long clearBit(AtomicLongArray words, int bit) {
+        int word = bit >>> WORD_SHIFT;
+        long mask = 1L << (bit & WORD_MASK);
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) == 0) {
+                return current;
+            }
+            if (words.compareAndSet(word, current, current & ~mask)) {
+                return current & ~mask;
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.stocktrading.structure;
+
+import com.stocktrading.model.Order;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free linked list implementation for storing orders.
+ * Maintains orders in price order (highest to lowest for buy, lowest to highest for sell),
+ * and by arrival sequence within the same price.
+ *
+ * Any order can be removed. Removal is claimed on the order, then its next link is marked by
+ * pointing it at the order itself (the real successor is kept in removedNext), then the order is
+ * unlinked. A marked link can no longer be CASed, so no insert can be lost behind a removed order.
+ * Traversals unlink marked orders they pass, and peek skips orders whose removal is claimed.
+ *
+ * An add that keeps losing CAS races backs off on its own thread, spinning for exponentially
+ * longer, capped pauses and then yielding between attempts. It never parks: the caller may hold
+ * its book's matcher flag, and a sleeping adder would stall matching for the whole symbol.
+ * No helper thread is ever started. Adds that needed to back off are counted, so contention
+ * can be monitored.
+ */
+public class LinkedOrderList implements OrderList {
+    private static final int FAST_RETRIES = 10;      // Attempts before backing off
+    private static final int MAX_SPIN_SHIFT = 10;    // Up to 1024 spins per backoff round
+
+    private final AtomicReference<Order> head = new AtomicReference<>(null);
+    // Last order in the list, may lag behind by a few nodes
+    private final AtomicReference<Order> tail = new AtomicReference<>(null);
+    private final boolean isBuyList;
+    private final LongAdder contendedAdds = new LongAdder(); // Adds that had to back off
+    private final LongAdder yieldedAdds = new LongAdder();   // Contended adds that also had to yield
+
+    public LinkedOrderList(boolean isBuyList) {
+        this.isBuyList = isBuyList;
+    }
+
+    /**
+     * Adds an order to the list, maintaining price-time order.
+     * Uses a lock-free algorithm to handle concurrent modifications.
+     * An order that goes behind every resting order is appended through the tail in O(1).
+     *
+     * @param newOrder the order to add
+     */
+    @Override
+    public void add(Order newOrder) {
+        for (int retries = 0; retries < FAST_RETRIES; retries++) {
+            if (tryAdd(newOrder)) {
+                return;
+            }
+            // Failed insertion, retry from the beginning
+        }
+
+        // Failed after the fast retries, back off between attempts
+        addWithBackoff(newOrder);
+    }
+
+    // One insertion attempt, true if the order was linked in
+    private boolean tryAdd(Order newOrder) {
+        Order currentHead = head.get();
+
+        if (currentHead != null && isMarked(currentHead)) {
+            // Help unlink the removed head, then start over
+            head.compareAndSet(currentHead, currentHead.getRemovedNext());
+            return false;
+        }
+
+        if (currentHead == null) {
+            // Empty list - try to set as new head
+            newOrder.setNext(null);
+            if (head.compareAndSet(null, newOrder)) {
+                publishTail(newOrder);
+                return true;
+            }
+            // Someone else added an order, retry
+            return false;
+        }
+
+        // Append behind the last order when nothing resting should come after the new one
+        Order last = tail.get();
+        if (last != null && last.getNext() == null && !goesBefore(newOrder, last)) {
+            newOrder.setNext(null);
+            if (last.compareAndSetNext(null, newOrder)) {
+                if (tail.compareAndSet(last, newOrder)) {
+                    dropTailIfRemoved(newOrder);
+                }
+                return true;
+            }
+        }
+
+        // Check if the new order should be the new head (has better price)
+        if (goesBefore(newOrder, currentHead)) {
+            // New order has better price, insert at head
+            newOrder.setNext(currentHead);
+            return head.compareAndSet(currentHead, newOrder);
+        }
+
+        // Find the right position to insert based on price, then arrival
+        Order prev = currentHead;
+        Order current = prev.getNext();
+
+        while (current != null) {
+            if (current == prev) {
+                return false; // prev was marked while we walked, start over
+            }
+            if (isMarked(current)) {
+                // Unlink the removed order on the way, prev stays where it is
+                Order successor = current.getRemovedNext();
+                if (!prev.compareAndSetNext(current, successor)) {
+                    return false;
+                }
+                current = successor;
+                continue;
+            }
+            if (goesBefore(newOrder, current)) {
+                break;
+            }
+
+            prev = current;
+            current = current.getNext();
+        }
+
+        newOrder.setNext(current);
+
+        // Atomic insertion
+        if (prev.compareAndSetNext(current, newOrder)) {
+            if (current == null) {
+                publishTail(newOrder);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Point the tail hint at a freshly appended order
+    private void publishTail(Order order) {
+        tail.set(order);
+        dropTailIfRemoved(order);
+    }
+
+    // The order may have been matched and removed before the hint was set; a removed
+    // order can be recycled, so the hint must never be left pointing at it
+    private void dropTailIfRemoved(Order order) {
+        if (isMarked(order)) {
+            tail.compareAndSet(order, null);
+        }
+    }
+
+    // A marked order links to itself
+    private static boolean isMarked(Order order) {
+        return order.getNext() == order;
+    }
+
+    // True if order a has priority over order b: better price, or same price and earlier arrival
+    private boolean goesBefore(Order a, Order b) {
+        if (a.getPriceTicks() != b.getPriceTicks()) {
+            return isBuyList ? a.getPriceTicks() > b.getPriceTicks() : a.getPriceTicks() < b.getPriceTicks();
+        }
+        return a.getSequence() < b.getSequence();
+    }
+
+    // Slow path for an add that keeps losing races. The order is already indexed and counted
+    // in the depth, so it cannot be dropped; every failed attempt means another add or removal
+    // succeeded, so the list as a whole keeps moving. The pause between attempts is bounded and
+    // never sleeps. Every attempt runs on this thread, inside the caller's OrderPool section.
+    private void addWithBackoff(Order newOrder) {
+        contendedAdds.increment();
+        boolean yielded = false;
+        for (int round = 0; !tryAdd(newOrder); round++) {
+            if (round < MAX_SPIN_SHIFT) {
+                for (int spin = 1 << round; spin > 0; spin--) {
+                    Thread.onSpinWait();
+                }
+            } else {
+                if (!yielded) {
+                    yielded = true;
+                    yieldedAdds.increment();
+                }
+                Thread.yield(); // Let the winners finish, without giving up the core for a fixed time
+            }
+        }
+    }
+
+    /**
+     * Gets how many adds lost the fast retries and had to back off.
+     *
+     * @return the number of contended adds so far
+     */
+    @Override
+    public long getContendedAddCount() {
+        return contendedAdds.sum();
+    }
+
+    /**
+     * Gets how many contended adds were still failing after spinning and had to yield.
+     *
+     * @return the number of yielded adds so far
+     */
+    @Override
+    public long getYieldedAddCount() {
+        return yieldedAdds.sum();
+    }
+
+    /**
+     * Gets the first order in the list without removing it.
+     * Orders whose removal is claimed are skipped, so a cancelled order is never offered for matching.
+     *
+     * @return the first order, or null if the list is empty
+     */
+    @Override
+    public Order peek() {
+        Order current = firstLink();
+        while (current != null && current.isRemovalClaimed()) {
+            current = successorOf(current);
+        }
+        return current;
+    }
+
+    /**
+     * Removes and returns the first order in the list.
+     * Uses a lock-free algorithm to handle concurrent modifications.
+     * The order is unlinked before it is returned, so the caller may recycle it.
+     *
+     * @return the removed order, or null if the list was empty
+     */
+    @Override
+    public Order removeHead() {
+        while (true) {
+            Order first = peek();
+            if (first == null) {
+                return null; // Empty list
+            }
+            if (first.claimRemoval()) {
+                unlink(first);
+                return first;
+            }
+            // Another thread claimed it first, retry
+        }
+    }
+
+    /**
+     * Removes an order from anywhere in the list.
+     * Time complexity: O(n) to find the predecessor.
+     *
+     * @param order the order to remove
+     * @return true if this call removed it, false if another thread removed it first
+     */
+    @Override
+    public boolean remove(Order order) {
+        if (!order.claimRemoval()) {
+            return false;
+        }
+        unlink(order);
+        return true;
+    }
+
+    // Mark the claimed order's next link, then unlink it. Only the claim owner calls this.
+    private void unlink(Order order) {
+        while (true) {
+            Order successor = order.getNext();
+            order.setRemovedNext(successor);
+            if (order.compareAndSetNext(successor, order)) {
+                break;
+            }
+            // An insert went in behind the order, mark the new successor instead
+        }
+
+        while (!tryUnlink(order)) {
+            // A neighbour changed, search again
+        }
+        tail.compareAndSet(order, null);
+    }
+
+    // Walk from the head to the marked order and swing its predecessor past it.
+    // Marked orders met on the way are unlinked too. True once the order is unreachable.
+    private boolean tryUnlink(Order order) {
+        Order prev = null;
+        Order current = head.get();
+        while (current != null) {
+            Order next = current.getNext();
+            if (next == current) {
+                Order successor = current.getRemovedNext();
+                boolean swung = prev == null ? head.compareAndSet(current, successor)
+                        : prev.compareAndSetNext(current, successor);
+                if (!swung) {
+                    return false;
+                }
+                if (current == order) {
+                    return true;
+                }
+                current = successor;
+                continue;
+            }
+            prev = current;
+            current = next;
+        }
+        return true; // Another thread already unlinked it
+    }
+
+    // The head, after unlinking any marked orders at the front
+    private Order firstLink() {
+        while (true) {
+            Order first = head.get();
+            if (first == null || !isMarked(first)) {
+                return first;
+            }
+            head.compareAndSet(first, first.getRemovedNext());
+        }
+    }
+
+    // The order after this one, whether or not its link is marked
+    private static Order successorOf(Order order) {
+        Order next = order.getNext();
+        return next == order ? order.getRemovedNext() : next;
+    }
+
+    /**
+     * Checks if the list is empty.
+     *
+     * @return true if the list is empty, false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    /**
+     * Clears all orders from this list.
+     */
+    @Override
+    public void clear() {
+        head.set(null);
+        tail.set(null);
+    }
+}
@@ -0,0 +1,148 @@
+package com.stocktrading.structure;
+
+import com.stocktrading.model.DepthSnapshot;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregated quantity and order count per price level for one side of a book.
+ * Levels are kept best price first and updated as orders are added, filled and removed,
+ * so reading the top N levels costs O(N) and never touches an individual order.
+ *
+ * Each level packs its total quantity and order count into one long, so the pair always
+ * changes together. A level that drops to zero is marked dead and unlinked; an update
+ * that finds a dead level retries against a fresh one.
+ *
+ * Levels are their own keys, ordered by their primitive price, and lookups go through a
+ * per-thread probe, so no price is ever boxed; only creating a level allocates.
+ */
+public class MarketDepth {
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long DEAD = -1L;
+
+    private final ConcurrentSkipListMap<Level, Level> levels; // Each level maps to itself
+    private final ThreadLocal<Level> probe = ThreadLocal.withInitial(() -> new Level(0));
+
+    public MarketDepth(boolean isBuyList) {
+        Comparator<Level> order = isBuyList
+                ? (a, b) -> Long.compare(b.priceTicks, a.priceTicks)
+                : (a, b) -> Long.compare(a.priceTicks, b.priceTicks);
+        this.levels = new ConcurrentSkipListMap<>(order);
+    }
+
+    /**
+     * Records a new order. Call before the order is inserted in its list,
+     * so a fill can never be recorded ahead of the order it fills.
+     *
+     * @param priceTicks the order price in ticks
+     * @param quantity the order quantity
+     */
+    public void addOrder(long priceTicks, int quantity) {
+        long delta = ((long) quantity << COUNT_BITS) + 1;
+        while (true) {
+            Level level = find(priceTicks);
+            if (level == null) {
+                Level created = new Level(priceTicks);
+                level = levels.putIfAbsent(created, created);
+                if (level == null) {
+                    level = created;
+                }
+            }
+            long current = level.packed.get();
+            if (current == DEAD) {
+                levels.remove(level, level); // Help unlink, then retry on a fresh level
+                continue;
+            }
+            if (level.packed.compareAndSet(current, current + delta)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records quantity leaving a level, through a fill or a removal.
+     * The quantity must have been recorded by addOrder; anything else is an accounting error.
+     *
+     * @param priceTicks the order price in ticks
+     * @param quantity the quantity that left the book
+     * @param orderGone true if the order no longer rests, so the level count drops too
+     * @throws IllegalStateException if the level does not hold what is leaving it
+     */
+    public void reduce(long priceTicks, int quantity, boolean orderGone) {
+        long delta = ((long) quantity << COUNT_BITS) + (orderGone ? 1 : 0);
+        Level level = find(priceTicks);
+        if (level == null) {
+            throw new IllegalStateException("No depth recorded at " + priceTicks + " ticks");
+        }
+        while (true) {
+            long current = level.packed.get();
+            long updated = current - delta;
+            if (current == DEAD || updated < 0 || (updated & COUNT_MASK) > (current & COUNT_MASK)) {
+                throw new IllegalStateException("Depth at " + priceTicks + " ticks holds less than is leaving it");
+            }
+            if (updated == 0) {
+                if (level.packed.compareAndSet(current, DEAD)) {
+                    levels.remove(level, level);
+                    return;
+                }
+            } else if (level.packed.compareAndSet(current, updated)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Copies up to the holder's capacity of levels, best price first.
+     * Each level is internally consistent; levels may come from slightly different moments.
+     * Time complexity: O(N) for N levels copied.
+     *
+     * @param into the holder to fill
+     * @return the number of levels copied
+     */
+    public int snapshot(DepthSnapshot into) {
+        int count = 0;
+        for (Level level : levels.keySet()) {
+            if (count == into.capacity()) {
+                break;
+            }
+            long packed = level.packed.get();
+            if (packed == DEAD || packed == 0) {
+                continue;
+            }
+            into.setLevel(count++, level.priceTicks, packed >>> COUNT_BITS, (int) (packed & COUNT_MASK));
+        }
+        into.setLevelCount(count);
+        return count;
+    }
+
+    /**
+     * Gets the total quantity resting at one price.
+     *
+     * @param priceTicks the price in ticks
+     * @return the quantity, 0 if the level is empty
+     */
+    public long getQuantity(long priceTicks) {
+        Level level = find(priceTicks);
+        long packed = level == null ? 0 : level.packed.get();
+        return packed == DEAD ? 0 : packed >>> COUNT_BITS;
+    }
+
+    // Looks a level up by price through this thread's probe, without boxing
+    private Level find(long priceTicks) {
+        Level key = probe.get();
+        key.priceTicks = priceTicks;
+        return levels.get(key);
+    }
+
+    // One price level: its packed quantity and count, keyed by its price
+    private static final class Level {
+        private final AtomicLong packed = new AtomicLong(); // Quantity and order count
+        private long priceTicks; // Fixed once the level is in the map, only probes are repriced
+
+        private Level(long priceTicks) {
+            this.priceTicks = priceTicks;
+        }
+    }
+}
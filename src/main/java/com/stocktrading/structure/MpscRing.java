@@ -0,0 +1,64 @@
+package com.stocktrading.structure;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A bounded lock-free ring buffer for many producers and one consumer.
+ * Slots are preallocated and reused, so passing a command through the ring does not allocate.
+ *
+ * A producer claims a sequence with one fetch-and-add, waits while the ring is full, fills
+ * the slot returned by get and then publishes it. The consumer takes published slots strictly
+ * in sequence order, so commands from one producer are seen in the order they were claimed.
+ *
+ * @param <T> the slot type
+ */
+public class MpscRing<T> extends SequencedRing {
+    private final Object[] slots;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param slotFactory creates each slot once
+     */
+    public MpscRing(int capacity, Supplier<T> slotFactory) {
+        super(capacity, 1 << 29);
+        this.slots = new Object[mask + 1];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slotFactory.get();
+        }
+    }
+
+    /**
+     * Gets the slot of a claimed sequence.
+     *
+     * @param sequence the claimed sequence
+     * @return the slot to fill
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long sequence) {
+        return (T) slots[(int) sequence & mask];
+    }
+
+    /**
+     * Passes published slots to a handler in sequence order. Consumer thread only.
+     * A slot may be reused by a producer as soon as the handler returns.
+     *
+     * @param handler processes one slot
+     * @param limit the most slots to take in this call
+     * @return the number of slots taken
+     */
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<T> handler, int limit) {
+        long sequence = consumedCount();
+        int count = 0;
+        while (count < limit && isPublished(sequence)) {
+            handler.accept((T) slots[(int) sequence & mask]);
+            sequence++;
+            count++;
+            release(sequence);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,199 @@
+package com.stocktrading.structure;
+
+import com.stocktrading.model.Order;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free map from order id to live order, for O(1) cancel and amend lookups.
+ *
+ * Open addressing with linear probing over primitive long keys, so lookups do not box.
+ * An id is only searched for within a fixed probe window of its home slot; an insert that
+ * finds the window full spills to an overflow index of the same size instead, created on the
+ * first spill and chained further if it fills too. That keeps misses bounded no matter how
+ * many removed slots have built up, and a spill never boxes the id. Removed slots are reused
+ * by later inserts.
+ * An id is only put again after its previous mapping was removed, so no two live slots hold the same id.
+ */
+public class OrderIndex {
+    private static final long EMPTY = 0;      // Order ids start at 1
+    private static final long REMOVED = -1;
+    private static final int MAX_PROBE = 64;
+
+    private final AtomicLongArray keys;
+    private final AtomicReferenceArray<Order> values;
+    private final int mask;
+    private final AtomicReference<OrderIndex> overflow = new AtomicReference<>(); // Created on the first spill
+    private final AtomicInteger overflowSize = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param expectedOrders the number of live orders to size for, the table gets twice as many slots
+     */
+    public OrderIndex(int expectedOrders) {
+        if (expectedOrders <= 0 || expectedOrders > (1 << 29)) {
+            throw new IllegalArgumentException("Invalid order index size: " + expectedOrders);
+        }
+        int slots = Integer.highestOneBit(expectedOrders * 2 - 1) << 1;
+        this.keys = new AtomicLongArray(slots);
+        this.values = new AtomicReferenceArray<>(slots);
+        this.mask = slots - 1;
+    }
+
+    /**
+     * Maps an id to its order. The id must not already be in the index.
+     *
+     * @param orderId the order id, positive
+     * @param order the order
+     */
+    public void put(long orderId, Order order) {
+        int home = slotOf(orderId);
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = (home + i) & mask;
+            long key = keys.get(slot);
+            if ((key == EMPTY || key == REMOVED) && keys.compareAndSet(slot, key, orderId)) {
+                values.set(slot, order);
+                return;
+            }
+        }
+        // Probe window full, rare at the sized load factor. The overflow exists before it is counted
+        OrderIndex next = overflow();
+        overflowSize.incrementAndGet();
+        next.put(orderId, order);
+    }
+
+    /**
+     * Finds the order with an id.
+     * Call inside an OrderPool enter/exit section, so the order returned cannot be recycled.
+     *
+     * @param orderId the order id
+     * @return the order, or null if the id is not in the index
+     */
+    public Order get(long orderId) {
+        int home = slotOf(orderId);
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = (home + i) & mask;
+            long key = keys.get(slot);
+            if (key == orderId) {
+                Order order = values.get(slot);
+                // The slot may be mid-removal, or removed and reused since the key was read
+                if (order != null && order.getOrderId() == orderId) {
+                    return order;
+                }
+                continue;
+            }
+            if (key == EMPTY) {
+                break; // Never reached by an insert for this id
+            }
+        }
+        return overflowSize.get() == 0 ? null : overflow.get().get(orderId);
+    }
+
+    /**
+     * Removes an id from the index.
+     *
+     * @param orderId the order id
+     * @return the order that was mapped, or null if the id was not in the index
+     */
+    public Order remove(long orderId) {
+        int home = slotOf(orderId);
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = (home + i) & mask;
+            long key = keys.get(slot);
+            if (key == orderId) {
+                Order order = values.getAndSet(slot, null);
+                if (order == null) {
+                    return null; // Another remover got here first
+                }
+                keys.compareAndSet(slot, orderId, REMOVED);
+                return order;
+            }
+            if (key == EMPTY) {
+                break;
+            }
+        }
+        if (overflowSize.get() == 0) {
+            return null;
+        }
+        Order order = overflow.get().remove(orderId);
+        if (order != null) {
+            overflowSize.decrementAndGet();
+        }
+        return order;
+    }
+
+    /**
+     * Removes an id only while it still maps to the given order, so a stale removal
+     * cannot drop a replacement made under the same id.
+     *
+     * @param orderId the order id
+     * @param expected the order the id should map to
+     * @return true if the mapping was removed
+     */
+    public boolean remove(long orderId, Order expected) {
+        int home = slotOf(orderId);
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = (home + i) & mask;
+            long key = keys.get(slot);
+            if (key == orderId) {
+                if (!values.compareAndSet(slot, expected, null)) {
+                    continue; // A slot mid-removal may still carry the id, the entry can be further on
+                }
+                keys.compareAndSet(slot, orderId, REMOVED);
+                return true;
+            }
+            if (key == EMPTY) {
+                break;
+            }
+        }
+        if (overflowSize.get() == 0 || !overflow.get().remove(orderId, expected)) {
+            return false;
+        }
+        overflowSize.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Points an id at a new order while it still maps to the expected one.
+     *
+     * @param orderId the order id
+     * @param expected the order the id should map to
+     * @param update the order to map it to
+     * @return true if the mapping was replaced
+     */
+    public boolean replace(long orderId, Order expected, Order update) {
+        int home = slotOf(orderId);
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = (home + i) & mask;
+            long key = keys.get(slot);
+            if (key == orderId) {
+                if (values.compareAndSet(slot, expected, update)) {
+                    return true;
+                }
+                continue; // A slot mid-removal may still carry the id, the entry can be further on
+            }
+            if (key == EMPTY) {
+                break;
+            }
+        }
+        return overflowSize.get() != 0 && overflow.get().replace(orderId, expected, update);
+    }
+
+    // The overflow index, created by the first spill; a racing spill's copy is dropped
+    private OrderIndex overflow() {
+        OrderIndex next = overflow.get();
+        if (next == null) {
+            overflow.compareAndSet(null, new OrderIndex((mask + 1) / 2));
+            next = overflow.get();
+        }
+        return next;
+    }
+
+    // Fibonacci hashing spreads sequential ids across the table
+    private int slotOf(long orderId) {
+        return (int) ((orderId * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
@@ -0,0 +1,16 @@
+package com.stocktrading.structure;
+
+/**
+ * Creates the buy and sell lists an OrderBook uses for each ticker.
+ */
+@FunctionalInterface
+public interface OrderListFactory {
+
+    /**
+     * Creates an empty order list.
+     *
+     * @param isBuyList true for the buy side, false for the sell side
+     * @return a new order list
+     */
+    OrderList create(boolean isBuyList);
+}
@@ -0,0 +1,186 @@
+package com.stocktrading.structure;
+
+import com.stocktrading.model.Order;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free order list that keeps one FIFO queue per price tick.
+ * Levels are stored in an array indexed by tick, best price first, so adding an order
+ * and taking the best order do not depend on how many orders rest behind it.
+ * Prices must fall inside the tick range given at construction; level storage is allocated
+ * in chunks on first use, so a wide range costs little until it is traded.
+ * A LevelBitmap tracks which levels hold orders, so the best level is found in a few word
+ * operations however many empty levels lie in front of it.
+ */
+public class PriceLadderOrderList implements OrderList {
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final boolean isBuyList;
+    private final long minTick;
+    private final int levelCount;
+
+    // Queues per level in chunks of CHUNK_SIZE, index 0 is the best possible price for this side.
+    // Chunks and queues are created on first use.
+    private final AtomicReferenceArray<AtomicReferenceArray<Queue<Order>>> chunks;
+
+    // Levels that may hold orders. An add sets the bit after queueing the order;
+    // a reader that finds a level empty clears the bit and re-checks the level.
+    private final LevelBitmap activeLevels;
+
+    /**
+     * Constructor
+     *
+     * @param isBuyList true if this list holds buy orders
+     * @param minTick the lowest price in ticks the ladder accepts
+     * @param maxTick the highest price in ticks the ladder accepts
+     */
+    public PriceLadderOrderList(boolean isBuyList, long minTick, long maxTick) {
+        if (maxTick < minTick) {
+            throw new IllegalArgumentException("Invalid price ladder range");
+        }
+        long count = maxTick - minTick + 1;
+        if (count > Integer.MAX_VALUE - 1) {
+            throw new IllegalArgumentException("Price ladder has too many levels: " + count);
+        }
+        this.isBuyList = isBuyList;
+        this.minTick = minTick;
+        this.levelCount = (int) count;
+        this.chunks = new AtomicReferenceArray<>((levelCount + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.activeLevels = new LevelBitmap(levelCount);
+    }
+
+    /**
+     * Creates a factory producing ladders over the same tick range for both sides.
+     *
+     * @param minTick the lowest price in ticks the ladder accepts
+     * @param maxTick the highest price in ticks the ladder accepts
+     * @return a factory for OrderBook
+     */
+    public static OrderListFactory factory(long minTick, long maxTick) {
+        return isBuy -> new PriceLadderOrderList(isBuy, minTick, maxTick);
+    }
+
+    /**
+     * Adds an order to the end of the queue at its price level.
+     * Time complexity: O(1), plus one word per bitmap layer.
+     *
+     * @param newOrder the order to add
+     * @throws IllegalArgumentException if the price is outside the ladder range
+     */
+    @Override
+    public void add(Order newOrder) {
+        int index = levelIndex(newOrder.getPriceTicks());
+        levelAt(index).offer(newOrder);
+        activeLevels.set(index);
+    }
+
+    @Override
+    public Order peek() {
+        for (int i = activeLevels.nextSetBit(0); i >= 0; i = activeLevels.nextSetBit(i + 1)) {
+            Queue<Order> level = existingLevel(i);
+            Order order = level == null ? null : level.peek();
+            if (order != null) {
+                return order;
+            }
+            deactivate(i, level);
+        }
+        return null;
+    }
+
+    @Override
+    public Order removeHead() {
+        for (int i = activeLevels.nextSetBit(0); i >= 0; i = activeLevels.nextSetBit(i + 1)) {
+            Queue<Order> level = existingLevel(i);
+            Order order = level == null ? null : level.poll();
+            if (order != null) {
+                return order;
+            }
+            deactivate(i, level);
+        }
+        return null;
+    }
+
+    /**
+     * Removes an order from its price level. The level queue nulls the entry first and
+     * unlinks it after, and only one of a concurrent remove and poll can take it.
+     * Time complexity: O(k) for k orders at the same price.
+     *
+     * @param order the order to remove
+     * @return true if this call removed it
+     */
+    @Override
+    public boolean remove(Order order) {
+        int index = levelIndex(order.getPriceTicks());
+        Queue<Order> level = existingLevel(index);
+        if (level == null || !level.remove(order)) {
+            return false;
+        }
+        if (level.isEmpty()) {
+            deactivate(index, level);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < chunks.length(); i++) {
+            chunks.set(i, null);
+        }
+        for (int i = activeLevels.nextSetBit(0); i >= 0; i = activeLevels.nextSetBit(i + 1)) {
+            activeLevels.clear(i);
+        }
+    }
+
+    @Override
+    public boolean accepts(long priceTicks) {
+        long tick = priceTicks - minTick;
+        return tick >= 0 && tick < levelCount;
+    }
+
+    // Map a price to its level, best price at index 0
+    private int levelIndex(long priceTicks) {
+        long tick = priceTicks - minTick;
+        if (tick < 0 || tick >= levelCount) {
+            throw new IllegalArgumentException("Price of " + priceTicks + " ticks is outside the ladder range");
+        }
+        return isBuyList ? levelCount - 1 - (int) tick : (int) tick;
+    }
+
+    private Queue<Order> existingLevel(int index) {
+        AtomicReferenceArray<Queue<Order>> chunk = chunks.get(index >>> CHUNK_SHIFT);
+        return chunk == null ? null : chunk.get(index & CHUNK_MASK);
+    }
+
+    private Queue<Order> levelAt(int index) {
+        int chunkIndex = index >>> CHUNK_SHIFT;
+        AtomicReferenceArray<Queue<Order>> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            AtomicReferenceArray<Queue<Order>> created = new AtomicReferenceArray<>(CHUNK_SIZE);
+            chunk = chunks.compareAndSet(chunkIndex, null, created) ? created : chunks.get(chunkIndex);
+        }
+
+        Queue<Order> level = chunk.get(index & CHUNK_MASK);
+        if (level == null) {
+            Queue<Order> created = new ConcurrentLinkedQueue<>();
+            level = chunk.compareAndSet(index & CHUNK_MASK, null, created) ? created : chunk.get(index & CHUNK_MASK);
+        }
+        return level;
+    }
+
+    // Clear the bit of a level seen empty, putting it back if an order arrived meanwhile
+    private void deactivate(int index, Queue<Order> level) {
+        activeLevels.clear(index);
+        if (level != null && !level.isEmpty()) {
+            activeLevels.set(index);
+        }
+    }
+}
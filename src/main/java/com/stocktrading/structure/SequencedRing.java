@@ -0,0 +1,162 @@
+package com.stocktrading.structure;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The sequencing shared by the bounded many-producer, one-consumer rings.
+ * Subclasses decide what a slot holds; this class hands out sequences and tracks which are published.
+ *
+ * A producer claims a sequence with one fetch-and-add, waits while the ring is full, fills its
+ * slot and then publishes it with a release store of the sequence into the slot's marker. The
+ * consumer takes published slots strictly in sequence order and then releases them to producers.
+ *
+ * Closing fixes the end of the ring at the published sequences: the consumer drains up to that
+ * end and stops, and any later claim is refused instead of waiting for a consumer that is gone.
+ */
+public abstract class SequencedRing {
+    private static final long OPEN = Long.MAX_VALUE;
+
+    private final AtomicLongArray published;              // Sequence last published in each slot
+    private final AtomicLong claimed = new AtomicLong();  // Next sequence to hand to a producer
+    private final AtomicLong consumed = new AtomicLong(); // Next sequence the consumer will take
+    private volatile long end = OPEN;                     // First sequence past the last one served
+    protected final int mask;
+
+    /**
+     * Constructor
+     *
+     * @param capacity    the number of slots, rounded up to a power of two
+     * @param maxCapacity the largest capacity the subclass can store
+     */
+    protected SequencedRing(int capacity, int maxCapacity) {
+        if (capacity <= 0 || capacity > maxCapacity) {
+            throw new IllegalArgumentException("Invalid ring capacity: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Claims the next sequence, waiting while the ring is full.
+     *
+     * @return the claimed sequence, to be filled and then published, or -1 if the ring is closed
+     */
+    public long claim() {
+        if (end != OPEN) {
+            return -1;
+        }
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed.get() > mask) {
+            if (sequence >= end) {
+                return -1; // Closed while full, the consumer will not free this slot
+            }
+            Thread.onSpinWait(); // Full, wait for the consumer to free the slot
+        }
+        return sequence;
+    }
+
+    /**
+     * Hands a filled slot to the consumer.
+     *
+     * @param sequence the claimed sequence
+     */
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Checks whether the consumer may take a sequence.
+     *
+     * @param sequence the sequence
+     * @return true if it is published and before the end of a closed ring
+     */
+    protected boolean isPublished(long sequence) {
+        return sequence < end && published.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Finds the end of the run of published sequences starting at from. For consumers that
+     * read slots in place over several stages instead of through drain.
+     *
+     * @param from the first sequence to look at
+     * @param limit the sequence to stop at
+     * @return the first sequence at or after from that is not published yet, at most limit
+     */
+    public long publishedUpTo(long from, long limit) {
+        long sequence = from;
+        while (sequence < limit && isPublished(sequence)) {
+            sequence++;
+        }
+        return sequence;
+    }
+
+    /**
+     * Hands every slot before a sequence back to the producers. Last reader only.
+     *
+     * @param sequence the first sequence still in use
+     */
+    public void release(long sequence) {
+        consumed.lazySet(sequence);
+    }
+
+    /**
+     * Stops the ring at the sequences published so far. Later claims are refused, and the
+     * consumer stops once it has taken everything before the end.
+     *
+     * @return the end, one past the last sequence the consumer will take
+     */
+    public long close() {
+        if (end == OPEN) {
+            end = publishedUpTo(consumed.get(), claimed.get());
+        }
+        return end;
+    }
+
+    /**
+     * Checks whether the ring is closed and the consumer has taken everything before its end.
+     *
+     * @return true once nothing is left to consume
+     */
+    public boolean isDrained() {
+        return isEnd(consumed.get());
+    }
+
+    /**
+     * Checks whether a reader has reached the end of a closed ring. For consumers that read
+     * slots in place over several stages, each with its own position.
+     *
+     * @param sequence the next sequence the reader would take
+     * @return true if the ring is closed and the sequence is at or past its end
+     */
+    public boolean isEnd(long sequence) {
+        long last = end;
+        return last != OPEN && sequence >= last;
+    }
+
+    /**
+     * Gets the number of sequences claimed so far, published or not, capped at the end of a closed ring.
+     *
+     * @return the claimed count
+     */
+    public long claimedCount() {
+        return Math.min(claimed.get(), end);
+    }
+
+    /**
+     * Gets the number of slots the consumer has finished with.
+     *
+     * @return the consumed count
+     */
+    public long consumedCount() {
+        return consumed.get();
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,67 @@
+package com.stocktrading.structure;
+
+import com.stocktrading.model.Order;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A lock-free order list built on a concurrent skip list.
+ * Orders are kept by price (highest first for buy, lowest first for sell) and then by arrival
+ * sequence, so inserts are O(log n) and price-time priority holds under any amount of contention.
+ */
+public class SkipListOrderList implements OrderList {
+    private final ConcurrentSkipListMap<Order, Boolean> orders;
+
+    public SkipListOrderList(boolean isBuyList) {
+        Comparator<Order> byPrice = isBuyList ?
+                (a, b) -> Long.compare(b.getPriceTicks(), a.getPriceTicks()) :
+                (a, b) -> Long.compare(a.getPriceTicks(), b.getPriceTicks());
+        this.orders = new ConcurrentSkipListMap<>(byPrice.thenComparingLong(Order::getSequence));
+    }
+
+    /**
+     * Adds an order behind every order with the same or a better price.
+     * Time complexity: O(log n).
+     *
+     * @param newOrder the order to add
+     */
+    @Override
+    public void add(Order newOrder) {
+        orders.put(newOrder, Boolean.TRUE);
+    }
+
+    @Override
+    public Order peek() {
+        Map.Entry<Order, Boolean> first = orders.firstEntry();
+        return first == null ? null : first.getKey();
+    }
+
+    @Override
+    public Order removeHead() {
+        Map.Entry<Order, Boolean> first = orders.pollFirstEntry();
+        return first == null ? null : first.getKey();
+    }
+
+    /**
+     * Removes an order by its price and sequence.
+     * Time complexity: O(log n).
+     *
+     * @param order the order to remove
+     * @return true if this call removed it
+     */
+    @Override
+    public boolean remove(Order order) {
+        return orders.remove(order) != null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return orders.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        orders.clear();
+    }
+}
@@ -0,0 +1,75 @@
+package com.stocktrading.structure;
+
+import com.stocktrading.model.Trade;
+import java.util.function.Consumer;
+
+/**
+ * A bounded ring of trade records for many producers and one consumer, stored in one
+ * preallocated long array. Producers write fields straight into their record, and the
+ * consumer reads them through a Trade flyweight, so moving a trade through the ring allocates nothing.
+ * Claiming and publishing are those of every SequencedRing.
+ */
+public class TradeRing extends SequencedRing {
+    private final long[] records;
+
+    /**
+     * Constructor
+     *
+     * @param capacity the number of trades the ring holds, rounded up to a power of two
+     */
+    public TradeRing(int capacity) {
+        super(capacity, 1 << 24);
+        this.records = new long[(mask + 1) * Trade.RECORD_LONGS];
+    }
+
+    /**
+     * Writes a trade into the next record, waiting while the ring is full.
+     *
+     * @param symbolId the symbol traded
+     * @param buyOrderId the buy order id
+     * @param sellOrderId the sell order id
+     * @param priceTicks the trade price in ticks
+     * @param quantity the quantity traded
+     * @param timestampNanos when the fill happened
+     * @return the trade's sequence, or -1 if the ring is closed and the trade was dropped
+     */
+    public long offer(int symbolId, long buyOrderId, long sellOrderId, long priceTicks, int quantity,
+                      long timestampNanos) {
+        long sequence = claim();
+        if (sequence < 0) {
+            return -1;
+        }
+        int offset = ((int) sequence & mask) * Trade.RECORD_LONGS;
+        records[offset + Trade.SEQUENCE] = sequence;
+        records[offset + Trade.SYMBOL_ID] = symbolId;
+        records[offset + Trade.BUY_ORDER_ID] = buyOrderId;
+        records[offset + Trade.SELL_ORDER_ID] = sellOrderId;
+        records[offset + Trade.PRICE_TICKS] = priceTicks;
+        records[offset + Trade.QUANTITY] = quantity;
+        records[offset + Trade.TIMESTAMP] = timestampNanos;
+        publish(sequence); // Release, the fields above are visible to whoever sees it
+        return sequence;
+    }
+
+    /**
+     * Passes published trades to a handler in sequence order. Consumer thread only.
+     * The flyweight is re-wrapped for every trade and the record may be reused once the handler returns.
+     *
+     * @param flyweight the view to wrap over each record
+     * @param handler processes one trade
+     * @param limit the most trades to take in this call
+     * @return the number of trades taken
+     */
+    public int drain(Trade flyweight, Consumer<Trade> handler, int limit) {
+        long sequence = consumedCount();
+        int count = 0;
+        while (count < limit && isPublished(sequence)) {
+            flyweight.wrap(records, ((int) sequence & mask) * Trade.RECORD_LONGS);
+            handler.accept(flyweight);
+            sequence++;
+            count++;
+            release(sequence);
+        }
+        return count;
+    }
+}
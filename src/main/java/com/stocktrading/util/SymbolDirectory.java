@@ -0,0 +1,111 @@
+package com.stocktrading.util;
+
+import com.stocktrading.model.Instrument;
+import com.stocktrading.model.TickSize;
+import com.stocktrading.structure.ChunkedArray;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns every registered ticker a unique, dense int id.
+ * Ids index the engine's book arrays directly, so no two tickers ever share a book
+ * and the hot path can work on ids without hashing strings.
+ * Storage grows with the number of registered symbols, the capacity is only an upper bound.
+ */
+public class SymbolDirectory {
+    /** Default upper bound on the number of symbols. */
+    public static final int DEFAULT_CAPACITY = 1 << 22;
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ChunkedArray<Instrument> instruments;
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Creates a directory bounded by DEFAULT_CAPACITY.
+     */
+    public SymbolDirectory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity the maximum number of symbols
+     */
+    public SymbolDirectory(int capacity) {
+        this.capacity = capacity;
+        this.instruments = new ChunkedArray<>(capacity);
+    }
+
+    /**
+     * Gets the id of a ticker, registering it with the default tick size if it is new.
+     *
+     * @param ticker the ticker symbol
+     * @return the symbol id
+     * @throws IllegalStateException if the directory is full
+     */
+    public int register(String ticker) {
+        Integer id = ids.get(ticker);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(ticker, this::assignId);
+    }
+
+    private Integer assignId(String ticker) {
+        int id = nextId.getAndIncrement();
+        if (id >= capacity) {
+            throw new IllegalStateException("Symbol directory is full, capacity " + capacity);
+        }
+        // Set before the id is published through the map
+        instruments.set(id, new Instrument(id, ticker, TickSize.CENT));
+        return id;
+    }
+
+    /**
+     * Gets the id of a registered ticker.
+     *
+     * @param ticker the ticker symbol
+     * @return the symbol id, or -1 if the ticker is not registered
+     */
+    public int lookup(String ticker) {
+        Integer id = ids.get(ticker);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the instrument registered under an id.
+     *
+     * @param id the symbol id
+     * @return the instrument, or null if no symbol has that id
+     */
+    public Instrument get(int id) {
+        return instruments.get(id);
+    }
+
+    /**
+     * Changes the tick size of a symbol. Resting orders keep the tick size they were priced in,
+     * so this should be done before the symbol is traded.
+     *
+     * @param id the symbol id
+     * @param tickSize the new tick size
+     */
+    public void setTickSize(int id, TickSize tickSize) {
+        Instrument current = instruments.get(id);
+        instruments.set(id, new Instrument(id, current.getTicker(), tickSize));
+    }
+
+    /**
+     * Gets the number of registered symbols.
+     *
+     * @return the number of symbols
+     */
+    public int size() {
+        return Math.min(nextId.get(), capacity);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
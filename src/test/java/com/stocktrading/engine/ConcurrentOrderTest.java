@@ -1,10 +1,19 @@
 package com.stocktrading.engine;
 
+import com.stocktrading.model.Instrument;
+import com.stocktrading.model.Order;
+import com.stocktrading.model.TickSize;
 import com.stocktrading.structure.OrderList;
+import com.stocktrading.structure.SkipListOrderList;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.RepeatedTest;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -207,4 +216,428 @@ public class ConcurrentOrderTest {
                     "Remaining quantity should be at most " + expectedRemaining);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should keep price order in the skip list book under contention")
+    public void testSkipListOrderingUnderContention() throws InterruptedException {
+        final TradingEngine engine = new TradingEngine(SkipListOrderList::new);
+        final int threads = 8;
+        final int ordersPerThread = 500;
+        final String orderSymbol = "ORDER4";
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            final int threadNum = i;
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < ordersPerThread; j++) {
+                        // Buy side only, so nothing matches and every order must rest
+                        double price = 100.0 + ((j * 7 + threadNum) % 50);
+                        engine.addOrder(true, orderSymbol, 100, price);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "All threads should finish");
+        executor.shutdown();
+
+        OrderBook orderBook;
+        try {
+            java.lang.reflect.Field field = TradingEngine.class.getDeclaredField("orderBook");
+            field.setAccessible(true);
+            orderBook = (OrderBook) field.get(engine);
+        } catch (Exception e) {
+            fail("Could not access orderBook: " + e.getMessage());
+            return;
+        }
+
+        OrderList buyList = orderBook.getBuyOrders(orderSymbol);
+        int count = 0;
+        double lastPrice = Double.MAX_VALUE;
+        com.stocktrading.model.Order order;
+        while ((order = buyList.removeHead()) != null) {
+            assertTrue(order.getPrice() <= lastPrice, "Buy orders should come out in descending price order");
+            lastPrice = order.getPrice();
+            count++;
+        }
+        assertEquals(threads * ordersPerThread, count, "No order should be lost");
+    }
+
+    @Test
+    @DisplayName("Should never expose a torn top of book to concurrent readers")
+    public void testTopOfBookReadsUnderContention() throws InterruptedException {
+        final TradingEngine engine = new TradingEngine();
+        final int symbolId = engine.registerSymbol("ORDER5");
+        final int writers = 4;
+        final int ordersPerWriter = 2000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch latch = new CountDownLatch(writers);
+        for (int i = 0; i < writers; i++) {
+            final boolean isBuy = i % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < ordersPerWriter; j++) {
+                        // Every order's quantity is its price, so a level total is a multiple of its price
+                        // and a mixed read is detectable
+                        long price = isBuy ? 1000 + (j % 50) : 1100 + (j % 50);
+                        engine.addOrderTicks(isBuy, symbolId, (int) price, price);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        com.stocktrading.model.TopOfBook top = new com.stocktrading.model.TopOfBook();
+        long lastSequence = -1;
+        while (latch.getCount() > 0) {
+            if (!engine.getTopOfBook(symbolId, top)) {
+                continue;
+            }
+            assertTrue(top.getSequence() >= lastSequence, "Sequence should never go backwards");
+            lastSequence = top.getSequence();
+            if (top.hasBid()) {
+                assertEquals(0, top.getBidQuantity() % top.getBidPriceTicks(), "Bid price and quantity should come from one level");
+            }
+            if (top.hasAsk()) {
+                assertEquals(0, top.getAskQuantity() % top.getAskPriceTicks(), "Ask price and quantity should come from one level");
+            }
+        }
+        executor.shutdown();
+
+        engine.getTopOfBook(symbolId, top);
+        assertEquals(1049L, top.getBidPriceTicks(), "Final bid should be the highest buy");
+        assertEquals(1100L, top.getAskPriceTicks(), "Final ask should be the lowest sell");
+    }
+
+    @Test
+    @DisplayName("Should keep depth in line with the resting orders after concurrent matching")
+    public void testDepthMatchesBookUnderContention() throws InterruptedException {
+        final TradingEngine engine = new TradingEngine();
+        final int symbolId = engine.registerSymbol("ORDER6");
+        final int threads = 4;
+        final int ordersPerThread = 1000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final boolean isBuy = i % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < ordersPerThread; j++) {
+                        engine.addOrderTicks(isBuy, symbolId, 1 + j % 7, 1000 + (j * 7) % 40);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "All threads should finish");
+        executor.shutdown();
+        engine.matchOrder(symbolId);
+
+        OrderBook orderBook;
+        try {
+            java.lang.reflect.Field field = TradingEngine.class.getDeclaredField("orderBook");
+            field.setAccessible(true);
+            orderBook = (OrderBook) field.get(engine);
+        } catch (Exception e) {
+            fail("Could not access orderBook: " + e.getMessage());
+            return;
+        }
+
+        for (boolean isBuy : new boolean[]{true, false}) {
+            long restingQty = 0;
+            int restingOrders = 0;
+            OrderList list = isBuy ? orderBook.getBuyOrdersByIndex(symbolId) : orderBook.getSellOrdersByIndex(symbolId);
+            for (com.stocktrading.model.Order o = list.peek(); o != null; o = o.getNext()) {
+                if (o.getQuantity() > 0) {
+                    restingQty += o.getQuantity();
+                    restingOrders++;
+                }
+            }
+
+            com.stocktrading.model.DepthSnapshot depth = new com.stocktrading.model.DepthSnapshot(100);
+            int levels = engine.getDepth(symbolId, isBuy, depth);
+            long depthQty = 0;
+            int depthOrders = 0;
+            for (int l = 0; l < levels; l++) {
+                depthQty += depth.getQuantity(l);
+                depthOrders += depth.getOrderCount(l);
+            }
+            assertEquals(restingQty, depthQty, "Depth quantity should equal resting quantity");
+            assertEquals(restingOrders, depthOrders, "Depth order count should equal resting orders");
+        }
+    }
+
+    @RepeatedTest(3)
+    @DisplayName("Should keep the book consistent while orders are cancelled during matching")
+    public void testConcurrentCancelAndMatch() throws InterruptedException {
+        final TradingEngine engine = new TradingEngine();
+        final int symbolId = engine.registerSymbol("ORDER7");
+        final int threads = 4;
+        final int ordersPerThread = 1000;
+        final AtomicInteger cancelled = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final boolean isBuy = i % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    long previous = 0;
+                    for (int j = 0; j < ordersPerThread; j++) {
+                        long id = engine.addOrderTicks(isBuy, symbolId, 10, isBuy ? 1000 + j % 20 : 1010 + j % 20);
+                        if (previous != 0 && engine.cancelOrder(previous)) {
+                            cancelled.incrementAndGet();
+                        }
+                        previous = id;
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "All threads should finish");
+        executor.shutdown();
+        engine.matchOrder(symbolId);
+
+        assertTrue(cancelled.get() > 0, "Some orders should have been cancelled");
+        com.stocktrading.model.TopOfBook top = new com.stocktrading.model.TopOfBook();
+        engine.getTopOfBook(symbolId, top);
+        assertTrue(!top.hasBid() || !top.hasAsk() || top.getBidPriceTicks() < top.getAskPriceTicks(),
+                "Book should not be left crossed");
+
+        for (boolean isBuy : new boolean[]{true, false}) {
+            com.stocktrading.model.DepthSnapshot depth = new com.stocktrading.model.DepthSnapshot(100);
+            int levels = engine.getDepth(symbolId, isBuy, depth);
+            for (int l = 0; l < levels; l++) {
+                assertEquals(depth.getOrderCount(l) * 10L, depth.getQuantity(l), "Cancels should take whole orders off the depth");
+            }
+        }
+    }
+
+    @RepeatedTest(3)
+    @DisplayName("Should leave nothing crossed once every adder has returned")
+    public void testCombinedMatchingLeavesBookUncrossed() throws InterruptedException {
+        final TradingEngine engine = new TradingEngine();
+        final int symbolId = engine.registerSymbol("ORDER8");
+        final int threads = 8;
+        final int ordersPerThread = 2000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final boolean isBuy = i % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < ordersPerThread; j++) {
+                        engine.addOrderTicks(isBuy, symbolId, 1, 1000);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "All threads should finish");
+        executor.shutdown();
+
+        // No explicit matchOrder: a thread that left its request to the matcher must still be served
+        com.stocktrading.model.DepthSnapshot depth = new com.stocktrading.model.DepthSnapshot(10);
+        assertEquals(0, engine.getDepth(symbolId, true, depth), "Every buy should be filled");
+        assertEquals(0, engine.getDepth(symbolId, false, depth), "Every sell should be filled");
+    }
+
+    @Test
+    @DisplayName("Should match every dirty symbol on the match pool")
+    public void testMatchPoolDrainsDirtySymbols() throws InterruptedException {
+        java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(4,
+                java.util.concurrent.ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        try {
+            final TradingEngine engine = new TradingEngine(com.stocktrading.structure.LinkedOrderList::new, pool);
+            final int symbols = 8;
+            final int[] ids = new int[symbols];
+            for (int s = 0; s < symbols; s++) {
+                ids[s] = engine.registerSymbol("POOL" + s);
+            }
+            final int threads = 4;
+            final int ordersPerThread = 2000;
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch latch = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                final boolean isBuy = i % 2 == 0;
+                executor.submit(() -> {
+                    try {
+                        for (int j = 0; j < ordersPerThread; j++) {
+                            engine.addOrderTicks(isBuy, ids[j % symbols], 1, 1000);
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS), "All threads should finish");
+            executor.shutdown();
+            assertTrue(engine.awaitMatching(30, TimeUnit.SECONDS), "Matching should settle");
+
+            com.stocktrading.model.DepthSnapshot depth = new com.stocktrading.model.DepthSnapshot(10);
+            for (int s = 0; s < symbols; s++) {
+                assertEquals(0, engine.getDepth(ids[s], true, depth), "Every buy should be filled");
+                assertEquals(0, engine.getDepth(ids[s], false, depth), "Every sell should be filled");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should insert every order in price order under contention without helper threads")
+    public void testLinkedListAddsUnderContention() throws InterruptedException {
+        final com.stocktrading.structure.LinkedOrderList list = new com.stocktrading.structure.LinkedOrderList(true);
+        final com.stocktrading.model.Instrument instrument =
+                new com.stocktrading.model.Instrument(0, "ORDER9", com.stocktrading.model.TickSize.CENT);
+        final int threads = 8;
+        final int ordersPerThread = 2000;
+        final java.util.concurrent.atomic.AtomicLong ids = new java.util.concurrent.atomic.AtomicLong();
+        final int threadsBefore = Thread.activeCount();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < ordersPerThread; j++) {
+                        long id = ids.incrementAndGet();
+                        list.add(new com.stocktrading.model.Order(id, true, instrument, 1, 1000 + id % 3, id));
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "All threads should finish");
+        assertTrue(Thread.activeCount() <= threadsBefore + threads, "Adds should not start threads");
+        executor.shutdown();
+
+        int count = 0;
+        com.stocktrading.model.Order previous = null;
+        for (com.stocktrading.model.Order o = list.peek(); o != null; o = o.getNext()) {
+            if (previous != null) {
+                assertTrue(previous.getPriceTicks() > o.getPriceTicks()
+                        || (previous.getPriceTicks() == o.getPriceTicks() && previous.getSequence() < o.getSequence()),
+                        "Orders should stay in price-time order");
+            }
+            previous = o;
+            count++;
+        }
+        assertEquals(threads * ordersPerThread, count, "No order should be lost");
+        assertTrue(list.getYieldedAddCount() <= list.getContendedAddCount(), "Yielded adds are a subset of contended adds");
+    }
+
+    @RepeatedTest(3)
+    @DisplayName("Should never lose shares when cancels race two-sided fills")
+    public void testFillsAndCancelsConserveQuantity() throws InterruptedException {
+        final TradingEngine engine = new TradingEngine();
+        final int symbolId = engine.registerSymbol("ORDER10");
+        final int ordersPerAdder = 4000;
+        final ConcurrentHashMap<Long, Integer> submitted = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<Long> cancelCandidates = new ConcurrentLinkedQueue<>();
+        final Set<Long> cancelled = ConcurrentHashMap.newKeySet();
+        final Map<Long, Long> traded = new HashMap<>(); // Written by the stream thread only
+        final AtomicInteger addersLeft = new AtomicInteger(4);
+
+        TradeStream stream = new TradeStream(1 << 12);
+        stream.subscribe(trade -> {
+            traded.merge(trade.getBuyOrderId(), (long) trade.getQuantity(), Long::sum);
+            traded.merge(trade.getSellOrderId(), (long) trade.getQuantity(), Long::sum);
+        });
+        engine.setTradeStream(stream);
+
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        CountDownLatch latch = new CountDownLatch(6);
+        for (int i = 0; i < 4; i++) {
+            final boolean isBuy = i % 2 == 0;
+            executor.submit(() -> {
+                try {
+                    // Batches rest before matching, so fills go through the two-sided path
+                    boolean[] sides = new boolean[4];
+                    int[] symbolIds = new int[4];
+                    int[] quantities = new int[4];
+                    long[] priceTicks = new long[4];
+                    long[] ids = new long[4];
+                    for (int j = 0; j < ordersPerAdder; j += 4) {
+                        for (int k = 0; k < 4; k++) {
+                            sides[k] = isBuy;
+                            symbolIds[k] = symbolId;
+                            quantities[k] = 1 + (j + k) % 13;
+                            priceTicks[k] = isBuy ? 1000 + (j + k) % 5 : 1002 - (j + k) % 5;
+                        }
+                        engine.addOrders(sides, symbolIds, quantities, priceTicks, 4, ids);
+                        for (int k = 0; k < 4; k++) {
+                            submitted.put(ids[k], quantities[k]);
+                            if ((j + k) % 2 == 0) {
+                                cancelCandidates.offer(ids[k]);
+                            }
+                        }
+                    }
+                } finally {
+                    addersLeft.decrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        for (int i = 0; i < 2; i++) {
+            executor.submit(() -> {
+                try {
+                    while (addersLeft.get() > 0 || !cancelCandidates.isEmpty()) {
+                        Long id = cancelCandidates.poll();
+                        if (id != null && engine.cancelOrder(id)) {
+                            cancelled.add(id);
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "All threads should finish");
+        executor.shutdown();
+        engine.matchOrder(symbolId);
+        stream.close();
+
+        assertFalse(cancelled.isEmpty(), "Some orders should have been cancelled");
+        for (Map.Entry<Long, Integer> order : submitted.entrySet()) {
+            long id = order.getKey();
+            long filled = traded.getOrDefault(id, 0L);
+            if (cancelled.contains(id)) {
+                assertTrue(filled < order.getValue(), "A cancelled order must have had shares left, order " + id);
+                assertEquals(0, engine.getOpenQuantity(id), "A cancelled order should have nothing open");
+            } else {
+                assertEquals((long) order.getValue(), filled + engine.getOpenQuantity(id),
+                        "Traded plus open should equal the original quantity, order " + id);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should hold off cancels while a fill has the quantity locked")
+    public void testLockedQuantityBlocksUpdates() {
+        Order order = new Order(1, true, new Instrument(0, "ORDER11", TickSize.CENT), 10, 1000, 1);
+
+        assertTrue(order.lockQuantity(10), "Matcher should lock the quantity");
+        assertEquals(10, order.getQuantity(), "Readers should see the quantity from before the fill");
+        assertFalse(order.updateQuantity(10, 0), "A cancel must not take a locked quantity");
+        assertFalse(order.lockQuantity(10), "A locked quantity cannot be locked again");
+
+        order.unlockQuantity(4);
+        assertEquals(4, order.getQuantity(), "Commit should leave the filled quantity");
+        assertTrue(order.updateQuantity(4, 0), "A cancel should succeed once the fill is done");
+    }
+}
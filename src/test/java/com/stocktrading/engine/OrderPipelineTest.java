@@ -0,0 +1,241 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.ExecutionReport;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderPipelineTest {
+
+    @Test
+    @DisplayName("Should journal, match and publish every command in sequence order")
+    public void testStagesInOrder() throws Exception {
+        TradingEngine engine = new TradingEngine();
+        int symbolId = engine.registerSymbol("ORDER1");
+        List<Long> journalled = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        Journal journal = new Journal() {
+            @Override
+            public void append(PipelineEvent event) {
+                journalled.add(event.getSequence());
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+
+        long buyId;
+        long sellId;
+        try (OrderPipeline pipeline = new OrderPipeline(engine, journal,
+                (event, endOfBatch) -> results.add(event.getOrderId() + ":" + event.isAccepted()
+                        + ":" + event.getOpenQuantity() + ":" + event.getTopOfBook().getBidQuantity()), 8)) {
+            buyId = pipeline.addOrderTicks(true, symbolId, 100, 15000L);
+            sellId = pipeline.addOrderTicks(false, symbolId, 40, 15000L);
+            pipeline.cancelOrder(buyId);
+            pipeline.cancelOrder(sellId);
+
+            // More commands than slots, producers must wait for the publish stage
+            for (int i = 0; i < 20; i++) {
+                pipeline.addOrderTicks(true, symbolId, 1, 100L + i);
+            }
+            pipeline.flush();
+        }
+
+        assertEquals(24, journalled.size(), "Every command should be journalled");
+        for (int i = 0; i < journalled.size(); i++) {
+            assertEquals(i, journalled.get(i).longValue(), "Journal should see commands in sequence order");
+        }
+        assertEquals(24, results.size(), "Every command should be published");
+        assertEquals(buyId + ":true:100:100", results.get(0), "Resting buy should be the bid");
+        assertEquals(sellId + ":true:0:60", results.get(1), "Sell should fill against the buy");
+        assertEquals(buyId + ":true:0:0", results.get(2), "Cancel should take the rest of the buy");
+        assertEquals(sellId + ":false:0:0", results.get(3), "Filled sell should not cancel");
+    }
+
+    @Test
+    @DisplayName("Should not match anything the journal failed to record")
+    public void testJournalFailureRejects() throws Exception {
+        TradingEngine engine = new TradingEngine();
+        int symbolId = engine.registerSymbol("ORDER1");
+        List<Boolean> accepted = new ArrayList<>();
+        Journal journal = new Journal() {
+            @Override
+            public void append(PipelineEvent event) throws IOException {
+                if (event.getSequence() == 1) {
+                    throw new IOException("disk full");
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+
+        long firstId;
+        long secondId;
+        long thirdId;
+        try (OrderPipeline pipeline = new OrderPipeline(engine, journal,
+                (event, endOfBatch) -> accepted.add(event.isAccepted()), 8)) {
+            firstId = pipeline.addOrderTicks(true, symbolId, 100, 15000L);
+            pipeline.flush();
+            secondId = pipeline.addOrderTicks(true, symbolId, 100, 15000L);
+            pipeline.flush();
+            thirdId = pipeline.addOrderTicks(true, symbolId, 100, 15000L);
+            pipeline.flush();
+        }
+
+        assertEquals(100, engine.getOpenQuantity(firstId), "Order journalled before the failure should rest");
+        assertEquals(0, engine.getOpenQuantity(secondId), "Order the journal failed on should not be matched");
+        assertEquals(TradingEngine.REJECTED, thirdId, "Orders after the failure should be rejected");
+        assertEquals(2, accepted.size(), "Queued commands should still be published");
+        assertTrue(accepted.get(0), "First order should be accepted");
+        assertFalse(accepted.get(1), "Failed order should be published as not accepted");
+    }
+
+    @Test
+    @DisplayName("Should not hand out ids the wrapped engine also uses")
+    public void testIdsDisjointFromEngine() throws Exception {
+        TradingEngine engine = new TradingEngine();
+        int symbolId = engine.registerSymbol("ORDER1");
+        long directId = engine.addOrderTicks(true, symbolId, 100, 15000L);
+
+        long pipelinedId;
+        try (OrderPipeline pipeline = new OrderPipeline(engine, new Journal() {
+            @Override
+            public void append(PipelineEvent event) {
+            }
+
+            @Override
+            public void flush() {
+            }
+        }, (event, endOfBatch) -> { }, 8)) {
+            pipelinedId = pipeline.addOrderTicks(true, symbolId, 50, 14000L);
+            pipeline.flush();
+        }
+
+        assertNotEquals(directId, pipelinedId, "Pipeline ids should not repeat engine ids");
+        assertEquals(100, engine.getOpenQuantity(directId), "Direct order should be untouched");
+        assertEquals(50, engine.getOpenQuantity(pipelinedId), "Pipelined order should rest under its own id");
+    }
+
+    @Test
+    @DisplayName("Should not carry fields of an earlier command into a reused slot")
+    public void testReusedSlotCleared() throws Exception {
+        TradingEngine engine = new TradingEngine();
+        int symbolId = engine.registerSymbol("ORDER1");
+        List<String> journalled = new ArrayList<>();
+        Journal journal = new Journal() {
+            @Override
+            public void append(PipelineEvent event) {
+                journalled.add(event.getType() + ":" + event.isBuy() + ":" + event.getSymbolId()
+                        + ":" + event.getQuantity() + ":" + event.getPriceTicks());
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+
+        // One slot, so every command overwrites the one before it
+        try (OrderPipeline pipeline = new OrderPipeline(engine, journal, (event, endOfBatch) -> { }, 1)) {
+            long buyId = pipeline.addOrderTicks(true, symbolId, 100, 15000L);
+            pipeline.cancelOrder(buyId);
+            long sellId = pipeline.addOrderTicks(false, symbolId, 50, 16000L);
+            pipeline.amendOrder(sellId, 40, 16010L);
+            pipeline.flush();
+        }
+
+        assertEquals(4, journalled.size(), "Every command should be journalled");
+        assertEquals(PipelineEvent.CANCEL + ":false:-1:0:0", journalled.get(1), "Cancel should carry only the id");
+        assertEquals(PipelineEvent.AMEND + ":false:-1:40:16010", journalled.get(3),
+                "Amend should carry only the id and the new quantity and price");
+    }
+
+    @Test
+    @DisplayName("Should complete execution reports on the match stage")
+    public void testSubmitOrderReports() throws Exception {
+        TradingEngine engine = new TradingEngine();
+        int symbolId = engine.registerSymbol("ORDER1");
+        Journal journal = new Journal() {
+            @Override
+            public void append(PipelineEvent event) {
+            }
+
+            @Override
+            public void flush() {
+            }
+        };
+
+        try (OrderPipeline pipeline = new OrderPipeline(engine, journal, (event, endOfBatch) -> { }, 8)) {
+            CompletableFuture<ExecutionReport> buy = pipeline.submitOrder(true, symbolId, 100, 15000L);
+            CompletableFuture<ExecutionReport> sell = pipeline.submitOrder(false, symbolId, 40, 15000L);
+            CompletableFuture<ExecutionReport> invalid = pipeline.submitOrder(true, symbolId, 0, 15000L);
+
+            ExecutionReport resting = buy.get(10, TimeUnit.SECONDS);
+            assertEquals(ExecutionReport.Status.RESTING, resting.getStatus(), "Buy should rest");
+            ExecutionReport filled = sell.get(10, TimeUnit.SECONDS);
+            assertEquals(ExecutionReport.Status.FILLED, filled.getStatus(), "Sell should fill");
+            assertEquals(60, engine.getOpenQuantity(resting.getOrderId()), "Buy should keep the rest");
+            assertTrue(invalid.isDone(), "Invalid order should be rejected immediately");
+            assertEquals(ExecutionReport.Status.REJECTED, invalid.get().getStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Should publish what was queued before close and refuse commands after it")
+    public void testCloseStopsAtPublished() throws Exception {
+        TradingEngine engine = new TradingEngine();
+        int symbolId = engine.registerSymbol("ORDER1");
+        List<Long> published = new ArrayList<>();
+        OrderPipeline pipeline = new OrderPipeline(engine, new Journal() {
+            @Override
+            public void append(PipelineEvent event) {
+            }
+
+            @Override
+            public void flush() {
+            }
+        }, (event, endOfBatch) -> published.add(event.getOrderId()), 4, new BlockingWaitStrategy());
+
+        long queuedId = pipeline.addOrderTicks(true, symbolId, 100, 15000L);
+        pipeline.close();
+
+        assertEquals(1, published.size(), "Close should publish the command queued before it");
+        assertEquals(100, engine.getOpenQuantity(queuedId), "Queued order should have been matched");
+        assertEquals(TradingEngine.REJECTED, pipeline.addOrderTicks(true, symbolId, 100, 15000L),
+                "Orders after close should be rejected");
+        assertEquals(-1, pipeline.cancelOrder(queuedId), "Cancels after close should be refused");
+        pipeline.flush(); // Must not wait for refused commands
+        pipeline.close();
+    }
+
+    @Test
+    @DisplayName("Should write one fixed-size record per command to the file journal")
+    public void testFileJournal() throws Exception {
+        Path file = Files.createTempFile("journal", ".bin");
+        try {
+            TradingEngine engine = new TradingEngine();
+            int symbolId = engine.registerSymbol("ORDER1");
+            try (FileJournal journal = new FileJournal(file, 4, false);
+                 OrderPipeline pipeline = new OrderPipeline(engine, journal, (event, endOfBatch) -> { }, 16)) {
+                for (int i = 0; i < 10; i++) {
+                    pipeline.addOrderTicks(i % 2 == 0, symbolId, 10, 1000L);
+                }
+                pipeline.flush();
+            }
+            assertEquals(10L * FileJournal.RECORD_SIZE, Files.size(file), "Each command should be one record");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
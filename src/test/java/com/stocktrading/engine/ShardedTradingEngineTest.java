@@ -0,0 +1,222 @@
+package com.stocktrading.engine;
+
+import com.stocktrading.model.DepthSnapshot;
+import com.stocktrading.model.ExecutionReport;
+import com.stocktrading.model.TopOfBook;
+import com.stocktrading.structure.LinkedOrderList;
+import com.stocktrading.structure.PriceLadderOrderList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedTradingEngineTest {
+    private ShardedTradingEngine engine;
+
+    @BeforeEach
+    public void setup() {
+        engine = new ShardedTradingEngine(4);
+    }
+
+    @AfterEach
+    public void teardown() {
+        engine.close();
+    }
+
+    @Test
+    @DisplayName("Should match orders on the owning shard and route by order id")
+    public void testMatchAndRoute() {
+        int symbolId = engine.registerSymbol("ORDER1");
+        long buyId = engine.addOrderTicks(true, symbolId, 100, 15000L);
+        long sellId = engine.addOrder(false, "ORDER1", 40, 149.0);
+        assertNotEquals(buyId, sellId, "Ids should be unique");
+
+        engine.flush();
+        assertEquals(60, engine.getOpenQuantity(buyId), "Buy should be partially filled");
+        assertEquals(0, engine.getOpenQuantity(sellId), "Sell should be filled");
+
+        assertTrue(engine.amendOrder(buyId, 30, 15000L));
+        engine.flush();
+        assertEquals(30, engine.getOpenQuantity(buyId), "Amend should reach the owning shard");
+
+        assertTrue(engine.cancelOrder(buyId));
+        engine.flush();
+        TopOfBook top = new TopOfBook();
+        assertTrue(engine.getTopOfBook(symbolId, top));
+        assertFalse(top.hasBid(), "Cancelled bid should leave the book");
+    }
+
+    @Test
+    @DisplayName("Should reject invalid orders without queueing them")
+    public void testRejected() {
+        assertEquals(TradingEngine.REJECTED, engine.addOrder(true, "ORDER2", 0, 10.0));
+        assertEquals(TradingEngine.REJECTED, engine.addOrderTicks(true, 999_999, 10, 1000L));
+        assertFalse(engine.cancelOrder(TradingEngine.REJECTED), "Rejected id should not route");
+    }
+
+    @Test
+    @DisplayName("Should reject prices outside a ladder book before queueing them")
+    public void testRejectedOutsideLadder() throws Exception {
+        try (ShardedTradingEngine ladder = new ShardedTradingEngine(2, PriceLadderOrderList.factory(1, 1000), 64)) {
+            int symbolId = ladder.registerSymbol("ORDER1");
+            assertEquals(TradingEngine.REJECTED, ladder.addOrderTicks(true, symbolId, 10, 5000L),
+                    "Out-of-range price should be rejected to the caller");
+            ExecutionReport report = ladder.submitOrder(true, symbolId, 10, 5000L).get(10, TimeUnit.SECONDS);
+            assertEquals(ExecutionReport.Status.REJECTED, report.getStatus(), "Report should say rejected");
+        }
+    }
+
+    @Test
+    @DisplayName("Should apply what was queued before close and refuse commands after it")
+    public void testCloseStopsAtPublished() throws Exception {
+        ShardedTradingEngine blocking = new ShardedTradingEngine(2, LinkedOrderList::new, 64, new BlockingWaitStrategy());
+        int symbolId = blocking.registerSymbol("ORDER1");
+        long queuedId = blocking.addOrderTicks(true, symbolId, 100, 15000L);
+        blocking.close();
+
+        assertEquals(100, blocking.getOpenQuantity(queuedId), "Order queued before close should be applied");
+        assertEquals(TradingEngine.REJECTED, blocking.addOrderTicks(true, symbolId, 10, 15000L),
+                "Orders after close should be rejected");
+        ExecutionReport report = blocking.submitOrder(true, symbolId, 10, 15000L).get(10, TimeUnit.SECONDS);
+        assertEquals(ExecutionReport.Status.REJECTED, report.getStatus(), "Report after close should say rejected");
+        assertFalse(blocking.cancelOrder(queuedId), "Cancels after close should be refused");
+        blocking.flush(); // Must not wait for refused commands
+        blocking.close();
+    }
+
+    @Test
+    @DisplayName("Should complete execution reports after matching")
+    public void testSubmitOrderReports() throws Exception {
+        int symbolId = engine.registerSymbol("ORDER1");
+
+        CompletableFuture<ExecutionReport> buy = engine.submitOrder(true, symbolId, 100, 15000L);
+        CompletableFuture<ExecutionReport> sell = engine.submitOrder(false, symbolId, 40, 15000L);
+        CompletableFuture<ExecutionReport> sweep = engine.submitOrder(false, symbolId, 100, 14900L);
+        CompletableFuture<ExecutionReport> invalid = engine.submitOrder(true, symbolId, 0, 15000L);
+
+        ExecutionReport resting = buy.get(10, TimeUnit.SECONDS);
+        assertEquals(ExecutionReport.Status.RESTING, resting.getStatus(), "Buy should rest");
+        assertEquals(100, resting.getOpenQuantity(), "Nothing should be filled yet");
+
+        ExecutionReport filled = sell.get(10, TimeUnit.SECONDS);
+        assertEquals(ExecutionReport.Status.FILLED, filled.getStatus(), "Sell should fill");
+        assertEquals(40, filled.getFilledQuantity(), "Sell should fill completely");
+
+        ExecutionReport partial = sweep.get(10, TimeUnit.SECONDS);
+        assertEquals(ExecutionReport.Status.PARTIALLY_FILLED, partial.getStatus(), "Sweep should fill partly");
+        assertEquals(60, partial.getFilledQuantity(), "Sweep should take what is left of the buy");
+        assertEquals(40, engine.getOpenQuantity(partial.getOrderId()), "Rest of the sweep should be open");
+
+        assertTrue(invalid.isDone(), "Invalid order should be rejected immediately");
+        assertEquals(ExecutionReport.Status.REJECTED, invalid.get().getStatus(), "Invalid order should be rejected");
+        assertEquals(TradingEngine.REJECTED, invalid.get().getOrderId(), "Rejected order should have no id");
+    }
+
+    @Test
+    @DisplayName("Should finish a sweep larger than one slice while serving other symbols")
+    public void testSlicedSweep() throws Exception {
+        int busy = engine.registerSymbol("ORDER1");
+        int other = busy;
+        for (int n = 0; other == busy || other % engine.getShardCount() != busy % engine.getShardCount(); n++) {
+            other = engine.registerSymbol("OTHER" + n); // Same shard as the busy symbol
+        }
+        for (int i = 0; i < 2000; i++) {
+            engine.addOrderTicks(false, busy, 1, 15000L + i % 20);
+        }
+        CompletableFuture<ExecutionReport> sweep = engine.submitOrder(true, busy, 2000, 15100L);
+        CompletableFuture<ExecutionReport> quiet = engine.submitOrder(true, other, 10, 100L);
+
+        ExecutionReport swept = sweep.get(10, TimeUnit.SECONDS);
+        assertEquals(ExecutionReport.Status.FILLED, swept.getStatus(), "Report should cover every slice of the sweep");
+        assertEquals(2000, swept.getFilledQuantity());
+        assertEquals(ExecutionReport.Status.RESTING, quiet.get(10, TimeUnit.SECONDS).getStatus(), "Other symbol should be served");
+        engine.flush();
+
+        assertEquals(0, engine.getOpenQuantity(sweep.get().getOrderId()), "Sweep should finish in later slices");
+        TopOfBook top = new TopOfBook();
+        assertTrue(engine.getTopOfBook(busy, top), "Book should exist");
+        assertFalse(top.hasAsk(), "Every resting sell should be filled");
+    }
+
+    @Test
+    @DisplayName("Should match through every wait strategy")
+    public void testWaitStrategies() throws Exception {
+        WaitStrategy[] strategies = {
+                new BusySpinWaitStrategy(),
+                new YieldingWaitStrategy(),
+                new SpinThenParkWaitStrategy(10, 10, 10_000L),
+                new BlockingWaitStrategy()
+        };
+        for (WaitStrategy strategy : strategies) {
+            String name = strategy.getClass().getSimpleName();
+            try (ShardedTradingEngine waiting = new ShardedTradingEngine(2,
+                    com.stocktrading.structure.LinkedOrderList::new, 1024, strategy)) {
+                int symbolId = waiting.registerSymbol("ORDER1");
+                waiting.addOrderTicks(true, symbolId, 100, 15000L);
+                Thread.sleep(20); // Let the matcher go idle under the strategy
+                ExecutionReport report = waiting.submitOrder(false, symbolId, 100, 15000L).get(10, TimeUnit.SECONDS);
+                assertEquals(ExecutionReport.Status.FILLED, report.getStatus(), name + " should wake for new work");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should not block on a signal that arrived before the wait")
+    public void testBlockingWaitKeepsEarlySignal() {
+        BlockingWaitStrategy strategy = new BlockingWaitStrategy(TimeUnit.SECONDS.toNanos(30));
+        strategy.idle(1); // First wait of this thread only records the signal count
+        strategy.signal(); // Lands between an empty poll and the next wait
+
+        long start = System.nanoTime();
+        strategy.idle(1);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "Early signal should not be lost");
+    }
+
+    @Test
+    @DisplayName("Should apply every order from many producers across shards")
+    public void testManyProducers() throws InterruptedException {
+        final int symbols = 16;
+        final int producers = 4;
+        final int ordersPerProducer = 5000;
+        final int[] ids = new int[symbols];
+        for (int s = 0; s < symbols; s++) {
+            ids[s] = engine.registerSymbol("SYM" + s);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch latch = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            executor.submit(() -> {
+                try {
+                    // Only buys, so nothing matches and every order must rest
+                    for (int j = 0; j < ordersPerProducer; j++) {
+                        engine.addOrderTicks(true, ids[j % symbols], 10, 1000 + j % 5);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "All producers should finish");
+        executor.shutdown();
+        engine.flush();
+
+        long resting = 0;
+        DepthSnapshot depth = new DepthSnapshot(10);
+        for (int s = 0; s < symbols; s++) {
+            int levels = engine.getDepth(ids[s], true, depth);
+            for (int l = 0; l < levels; l++) {
+                resting += depth.getQuantity(l);
+            }
+        }
+        assertEquals(10L * producers * ordersPerProducer, resting, "No queued order should be lost");
+    }
+}
@@ -1,12 +1,22 @@
 package com.stocktrading.engine;
 
+import com.stocktrading.model.DepthSnapshot;
+import com.stocktrading.model.ExecutionReport;
 import com.stocktrading.model.Order;
+import com.stocktrading.model.OrderPool;
+import com.stocktrading.model.TopOfBook;
+import com.stocktrading.structure.LinkedOrderList;
+import com.stocktrading.structure.MarketDepth;
 import com.stocktrading.structure.OrderList;
+import com.stocktrading.structure.PriceLadderOrderList;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -113,6 +123,72 @@ public class TradingEngineTest {
             assertNotNull(third);
             assertEquals(152.0, third.getPrice(), "Highest price should be third");
         }
+
+        @Test
+        @DisplayName("Should keep arrival order within the same price")
+        public void testTimePriorityWithinPrice() {
+            engine.addOrder(true, "ORDER1", 100, 150.0);
+            engine.addOrder(true, "ORDER1", 200, 150.0);
+            engine.addOrder(true, "ORDER1", 300, 151.0);
+            engine.addOrder(true, "ORDER1", 400, 150.0);
+
+            Order first = orderBook.getBuyOrders("ORDER1").peek();
+            assertEquals(151.0, first.getPrice(), "Best price should be first");
+
+            Order second = first.getNext();
+            Order third = second.getNext();
+            Order fourth = third.getNext();
+            assertEquals(100, second.getQuantity(), "Earliest order at 150.0 should be next");
+            assertEquals(200, third.getQuantity(), "Second order at 150.0 should follow");
+            assertEquals(400, fourth.getQuantity(), "Latest order at 150.0 should be last");
+            assertTrue(second.getSequence() < third.getSequence(), "Sequence numbers should increase");
+            assertTrue(third.getSequence() < fourth.getSequence(), "Sequence numbers should increase");
+            assertNull(fourth.getNext(), "No further orders expected");
+        }
+
+        @Test
+        @DisplayName("Should store prices as ticks of the ticker's tick size")
+        public void testTickPrices() {
+            engine.setTickSize("ORDER8", 0.05);
+            engine.addOrder(true, "ORDER8", 100, 10.02);
+
+            Order buyOrder = orderBook.getBuyOrders("ORDER8").peek();
+            assertEquals(200, buyOrder.getPriceTicks(), "10.02 should round to 200 ticks of 0.05");
+            assertEquals(10.0, buyOrder.getPrice(), "Price should convert back to 10.00");
+
+            // The tick entry point takes the price as is
+            engine.addOrderTicks(false, "ORDER8", 100, 200);
+            assertNull(orderBook.getBuyOrders("ORDER8").peek(), "Buy order should match the tick-priced sell");
+            assertNull(orderBook.getSellOrders("ORDER8").peek(), "Sell order should be fully matched");
+
+            // An integer price through addOrder is still a price, not ticks
+            engine.addOrder(true, "ORDER9", 100, 150);
+            assertEquals(15000L, orderBook.getBuyOrders("ORDER9").peek().getPriceTicks(),
+                    "150 should mean 150.00, not 150 ticks");
+        }
+
+        @Test
+        @DisplayName("Should sum the add contention counters of every book")
+        public void testContentionCounters() {
+            TradingEngine counted = new TradingEngine(isBuy -> new LinkedOrderList(isBuy) {
+                @Override
+                public long getContendedAddCount() {
+                    return 3;
+                }
+
+                @Override
+                public long getYieldedAddCount() {
+                    return 1;
+                }
+            });
+            assertEquals(0, counted.getContendedAddCount(), "No book, nothing contended");
+
+            counted.addOrderTicks(true, "ORDER1", 100, 15000L);
+            counted.addOrderTicks(true, "ORDER2", 100, 15000L);
+            assertEquals(12, counted.getContendedAddCount(), "Both sides of both books should be summed");
+            assertEquals(4, counted.getYieldedAddCount(), "Both sides of both books should be summed");
+            assertEquals(0, engine.getContendedAddCount(), "A single adder should never contend");
+        }
     }
 
     @Nested
@@ -257,5 +333,626 @@ public class TradingEngineTest {
             assertEquals(300.0, secondBuy.getPrice(), "Second remaining buy should be at price 300.0");
             assertEquals(100, secondBuy.getQuantity(), "Second remaining buy should have quantity 100");
         }
+
+        @Test
+        @DisplayName("Should keep tickers apart that collided under the old 1024-bucket hash")
+        public void testNoCollisionBetweenTickers() {
+            // STOCK108 and STOCK113 hashed to the same bucket with FNV-1a modulo 1024
+            engine.addOrder(true, "STOCK108", 100, 150.0);
+            engine.addOrder(false, "STOCK113", 100, 145.0);
+
+            assertNotNull(orderBook.getBuyOrders("STOCK108").peek(), "STOCK108 buy should still exist");
+            assertNotNull(orderBook.getSellOrders("STOCK113").peek(), "STOCK113 sell should still exist");
+        }
+
+        @Test
+        @DisplayName("Should match orders added through the symbol id fast path")
+        public void testSymbolIdFastPath() {
+            int symbolId = engine.registerSymbol("ORDER9");
+            assertEquals(symbolId, engine.registerSymbol("ORDER9"), "Registering twice should return the same id");
+
+            engine.addOrderTicks(true, symbolId, 100, 15000L);
+            engine.addOrder(false, "ORDER9", 40, 149.0);
+
+            Order buyOrder = orderBook.getBuyOrders("ORDER9").peek();
+            assertEquals(symbolId, buyOrder.getSymbolId(), "Order should carry its symbol id");
+            assertEquals("ORDER9", buyOrder.getTickerSymbol(), "Ticker should resolve from the id");
+            assertEquals(60, buyOrder.getQuantity(), "String and id paths should share one book");
+        }
+
+        @Test
+        @DisplayName("Should create books on first trade and grow past 1024 symbols")
+        public void testLazyGrowableBooks() {
+            int quiet = engine.registerSymbol("QUIET");
+            engine.matchOrder(quiet);
+            assertNull(orderBook.findBook(quiet), "Registering or matching should not create a book");
+
+            int lastId = -1;
+            for (int i = 0; i < 5000; i++) {
+                lastId = engine.registerSymbol("SYM" + i);
+            }
+            engine.addOrderTicks(true, lastId, 100, 15000L);
+            engine.addOrderTicks(false, lastId, 30, 14900L);
+
+            assertNotNull(orderBook.findBook(lastId), "First order should create the book");
+            assertEquals(70, orderBook.getBuyOrdersByIndex(lastId).peek().getQuantity(),
+                    "Symbols beyond the old capacity should trade normally");
+            assertNull(orderBook.findBook(lastId - 1), "Untraded symbols should have no book");
+        }
+
+        @Test
+        @DisplayName("Should fill an incoming order at resting prices without linking it")
+        public void testIncomingOrderSweepsFirst() throws Exception {
+            java.lang.reflect.Field field = TradingEngine.class.getDeclaredField("orderPool");
+            field.setAccessible(true);
+            OrderPool pool = (OrderPool) field.get(engine);
+            int symbolId = engine.registerSymbol("ORDER1");
+            engine.addOrderTicks(false, symbolId, 50, 15000L);
+            engine.addOrderTicks(false, symbolId, 50, 15010L);
+            long created = pool.getCreatedCount();
+
+            long buyId = engine.addOrderTicks(true, symbolId, 70, 15100L);
+
+            assertEquals(0, engine.getOpenQuantity(buyId), "Incoming buy should fill completely");
+            assertNull(orderBook.getBuyOrdersByIndex(symbolId).peek(), "Filled buy should never rest");
+            assertEquals(created, pool.getCreatedCount(), "A fully filled order should need no order object");
+
+            DepthSnapshot asks = new DepthSnapshot(5);
+            assertEquals(1, engine.getDepth(symbolId, false, asks), "Best ask level should be gone");
+            assertEquals(15010L, asks.getPriceTicks(0), "Fill should walk to the next resting price");
+            assertEquals(30, asks.getQuantity(0), "Second level should lose the rest of the buy");
+
+            long sweepId = engine.addOrderTicks(true, symbolId, 50, 15010L);
+            assertEquals(20, engine.getOpenQuantity(sweepId), "Only the remainder should rest");
+            assertEquals(20, orderBook.getBuyOrdersByIndex(symbolId).peek().getQuantity(), "Remainder should rest at its limit");
+        }
+    }
+
+    @Nested
+    @DisplayName("Price Ladder Book Tests")
+    class PriceLadderTests {
+        private TradingEngine ladderEngine;
+        private OrderBook ladderBook;
+
+        @BeforeEach
+        public void setupLadder() {
+            ladderEngine = new TradingEngine(PriceLadderOrderList.factory(1, 500_000));
+            ladderBook = bookOf(ladderEngine);
+        }
+
+        @Test
+        @DisplayName("Should keep FIFO order within a price level")
+        public void testFifoWithinLevel() {
+            ladderEngine.addOrder(true, "ORDER1", 100, 150.0);
+            ladderEngine.addOrder(true, "ORDER1", 200, 150.0);
+            ladderEngine.addOrder(true, "ORDER1", 300, 151.0);
+
+            OrderList buyList = ladderBook.getBuyOrders("ORDER1");
+            assertEquals(151.0, buyList.removeHead().getPrice(), "Best price should come out first");
+            assertEquals(100, buyList.removeHead().getQuantity(), "Earlier order at 150.0 should come first");
+            assertEquals(200, buyList.removeHead().getQuantity(), "Later order at 150.0 should come second");
+            assertTrue(buyList.isEmpty(), "Ladder should be empty");
+        }
+
+        @Test
+        @DisplayName("Should keep price order beyond 100 better-priced orders")
+        public void testDeepBookOrdering() {
+            for (int i = 0; i < 250; i++) {
+                ladderEngine.addOrder(false, "ORDER2", 10, 100.0 + i * 0.01);
+            }
+            ladderEngine.addOrder(false, "ORDER2", 10, 99.5);
+
+            OrderList sellList = ladderBook.getSellOrders("ORDER2");
+            assertEquals(99.5, sellList.peek().getPrice(), "Lowest sell should be at the top");
+        }
+
+        @Test
+        @DisplayName("Should match across several levels")
+        public void testSweepLevels() {
+            ladderEngine.addOrder(false, "ORDER3", 100, 3000.0);
+            ladderEngine.addOrder(false, "ORDER3", 100, 3050.0);
+            ladderEngine.addOrder(false, "ORDER3", 100, 3100.0);
+            ladderEngine.addOrder(true, "ORDER3", 250, 3110.0);
+
+            OrderList sellList = ladderBook.getSellOrders("ORDER3");
+            assertNull(ladderBook.getBuyOrders("ORDER3").peek(), "Buy order should be fully matched");
+            assertEquals(3100.0, sellList.peek().getPrice(), "Only the worst sell should remain");
+            assertEquals(50, sellList.peek().getQuantity(), "Worst sell should be partially filled");
+        }
+
+        @Test
+        @DisplayName("Should find the next best level after cancels empty the best ones")
+        public void testBestLevelAfterCancels() {
+            long best = ladderEngine.addOrderTicks(false, "ORDER5", 100, 10L);
+            long next = ladderEngine.addOrderTicks(false, "ORDER5", 100, 20_000L);
+            ladderEngine.addOrderTicks(false, "ORDER5", 100, 450_000L);
+
+            OrderList sellList = ladderBook.getSellOrders("ORDER5");
+            assertTrue(ladderEngine.cancelOrder(best));
+            assertEquals(20_000L, sellList.peek().getPriceTicks(), "Emptied level should be skipped");
+            assertTrue(ladderEngine.cancelOrder(next));
+            assertEquals(450_000L, sellList.peek().getPriceTicks(), "Distant level should be found directly");
+        }
+
+        @Test
+        @DisplayName("Should reject prices outside the ladder")
+        public void testOutOfRangePrice() {
+            long sellId = ladderEngine.addOrder(false, "ORDER4", 100, 100.0);
+
+            assertEquals(TradingEngine.REJECTED, ladderEngine.addOrder(true, "ORDER4", 100, 6000.0),
+                    "Order priced beyond the ladder should be rejected");
+            assertFalse(ladderEngine.amendOrder(sellId, 100, 600_000L), "Amend beyond the ladder should be refused");
+
+            DepthSnapshot bids = new DepthSnapshot(5);
+            DepthSnapshot asks = new DepthSnapshot(5);
+            assertEquals(0, ladderEngine.getDepth("ORDER4", true, bids), "Rejected order should leave no bid level");
+            assertEquals(1, ladderEngine.getDepth("ORDER4", false, asks), "Resting sell should keep its level");
+            assertEquals(100L, asks.getQuantity(0), "Resting sell should not be filled by the rejected order");
+            assertEquals(100, ladderEngine.getOpenQuantity(sellId), "Resting sell should stay open");
+            assertTrue(ladderBook.getBuyOrders("ORDER4").isEmpty(), "Rejected order should not be linked");
+        }
+    }
+
+    @Nested
+    @DisplayName("Order Id Tests")
+    class OrderIdTests {
+        @Test
+        @DisplayName("Should assign increasing ids and track open quantity by id")
+        public void testOrderIds() {
+            long buyId = engine.addOrder(true, "ORDER1", 100, 150.0);
+            long sellId = engine.addOrder(false, "ORDER1", 40, 150.0);
+
+            assertTrue(buyId > 0, "Accepted order should get an id");
+            assertTrue(sellId > buyId, "Ids should increase");
+            assertEquals(buyId, orderBook.getBuyOrders("ORDER1").peek().getOrderId(), "Order should carry its id");
+            assertEquals(60, engine.getOpenQuantity(buyId), "Partially filled order should show what is left");
+            assertEquals(0, engine.getOpenQuantity(sellId), "Filled order should no longer be open");
+        }
+
+        @Test
+        @DisplayName("Should cancel a resting order so it is never matched")
+        public void testCancelOrder() {
+            long first = engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+            long second = engine.addOrderTicks(true, "ORDER1", 200, 14900L);
+
+            assertTrue(engine.cancelOrder(first), "Resting order should cancel");
+            assertFalse(engine.cancelOrder(first), "Cancelled order should not cancel twice");
+            assertEquals(0, engine.getOpenQuantity(first), "Cancelled order should have nothing open");
+            assertEquals(second, orderBook.getBuyOrders("ORDER1").peek().getOrderId(), "Next order should be the head");
+
+            // The sell should trade with the second order only
+            engine.addOrderTicks(false, "ORDER1", 50, 14900L);
+            assertEquals(150, engine.getOpenQuantity(second), "Fill should go to the remaining order");
+
+            DepthSnapshot depth = new DepthSnapshot(5);
+            assertEquals(1, engine.getDepth("ORDER1", true, depth), "Cancelled level should leave the depth");
+            assertEquals(150, depth.getQuantity(0));
+        }
+
+        @Test
+        @DisplayName("Should reduce quantity in place and keep queue priority")
+        public void testAmendReduceKeepsPriority() {
+            long first = engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+            long second = engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+
+            assertTrue(engine.amendOrder(first, 40, 15000L), "Reduction should succeed");
+            Order head = orderBook.getBuyOrders("ORDER1").peek();
+            assertEquals(first, head.getOrderId(), "Reduced order should stay first in line");
+            assertEquals(40, head.getQuantity(), "Quantity should be reduced in place");
+
+            engine.addOrderTicks(false, "ORDER1", 50, 15000L);
+            assertEquals(0, engine.getOpenQuantity(first), "First order should fill first");
+            assertEquals(90, engine.getOpenQuantity(second), "Remainder should go to the second order");
+        }
+
+        @Test
+        @DisplayName("Should move an order on price change or increase, keeping its id")
+        public void testAmendReinserts() {
+            long first = engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+            long second = engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+
+            assertTrue(engine.amendOrder(first, 150, 15000L), "Increase should succeed");
+            assertEquals(second, orderBook.getBuyOrders("ORDER1").peek().getOrderId(),
+                    "Increased order should lose its place in line");
+            assertEquals(150, engine.getOpenQuantity(first), "Id should follow the amended order");
+
+            // Reprice through the resting sell, the amended order should trade
+            engine.addOrderTicks(false, "ORDER1", 60, 15100L);
+            assertTrue(engine.amendOrder(first, 150, 15100L), "Price change should succeed");
+            assertEquals(90, engine.getOpenQuantity(first), "Repriced order should match the crossing sell");
+            assertEquals(first, orderBook.getBuyOrders("ORDER1").peek().getOrderId(), "Better price should lead the book");
+
+            DepthSnapshot depth = new DepthSnapshot(5);
+            assertEquals(2, engine.getDepth("ORDER1", true, depth));
+            assertEquals(90, depth.getQuantity(0), "Depth should follow the moved order");
+            assertEquals(100, depth.getQuantity(1), "Old level should only hold the second order");
+        }
+
+        @Test
+        @DisplayName("Should not amend filled or invalid orders")
+        public void testAmendRejected() {
+            long buyId = engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+            assertFalse(engine.amendOrder(buyId, 0, 15000L), "Zero quantity should be rejected");
+            engine.addOrderTicks(false, "ORDER1", 100, 15000L);
+            assertFalse(engine.amendOrder(buyId, 50, 15000L), "Filled order should not amend");
+        }
+
+        @Test
+        @DisplayName("Should not cancel a filled order")
+        public void testCancelFilledOrder() {
+            long buyId = engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+            engine.addOrderTicks(false, "ORDER1", 100, 15000L);
+            assertFalse(engine.cancelOrder(buyId), "Filled order should not cancel");
+            assertFalse(engine.cancelOrder(987654L), "Unknown id should not cancel");
+        }
+
+        @Test
+        @DisplayName("Should report what matching did to a submitted order")
+        public void testSubmitOrderReports() throws Exception {
+            int symbolId = engine.registerSymbol("ORDER1");
+            ExecutionReport resting = engine.submitOrder(true, symbolId, 100, 15000L).get();
+            assertEquals(ExecutionReport.Status.RESTING, resting.getStatus(), "Buy should rest");
+            ExecutionReport partial = engine.submitOrder(false, symbolId, 150, 15000L).get();
+            assertEquals(ExecutionReport.Status.PARTIALLY_FILLED, partial.getStatus(), "Sell should fill partly");
+            assertEquals(100, partial.getFilledQuantity());
+            ExecutionReport rejected = engine.submitOrder(true, symbolId, 0, 15000L).get();
+            assertEquals(ExecutionReport.Status.REJECTED, rejected.getStatus(), "Invalid order should be rejected");
+
+            // With a match pool the report waits for the pool to match the symbol
+            ForkJoinPool pool = new ForkJoinPool(2, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            try {
+                TradingEngine pooled = new TradingEngine(LinkedOrderList::new, pool);
+                int pooledId = pooled.registerSymbol("ORDER1");
+                for (int i = 0; i < 300; i++) {
+                    pooled.addOrderTicks(false, pooledId, 1, 15000L + i % 3);
+                }
+                ExecutionReport sweep = pooled.submitOrder(true, pooledId, 300, 15010L).get(10, TimeUnit.SECONDS);
+                assertEquals(ExecutionReport.Status.FILLED, sweep.getStatus(), "Report should cover the whole sweep");
+                assertEquals(300, sweep.getFilledQuantity());
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject invalid orders without an id")
+        public void testRejectedOrder() {
+            assertEquals(TradingEngine.REJECTED, engine.addOrder(true, "ORDER1", 0, 150.0));
+            assertEquals(TradingEngine.REJECTED, engine.addOrderTicks(true, 12345, 100, 15000L));
+            assertEquals(0, engine.getOpenQuantity(TradingEngine.REJECTED), "Rejected id should not be open");
+        }
+    }
+
+    @Nested
+    @DisplayName("Top Of Book Tests")
+    class TopOfBookTests {
+        @Test
+        @DisplayName("Should publish best bid and offer after adds and fills")
+        public void testTopOfBookFollowsBook() {
+            TopOfBook top = new TopOfBook();
+            assertFalse(engine.getTopOfBook("ORDER1", top), "Untraded ticker should have no top of book");
+
+            engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+            engine.addOrderTicks(true, "ORDER1", 50, 14900L);
+            engine.addOrderTicks(false, "ORDER1", 70, 15100L);
+
+            assertTrue(engine.getTopOfBook("ORDER1", top));
+            assertEquals(15000L, top.getBidPriceTicks(), "Best bid should be the highest buy");
+            assertEquals(100, top.getBidQuantity());
+            assertEquals(15100L, top.getAskPriceTicks(), "Best ask should be the lowest sell");
+            assertEquals(70, top.getAskQuantity());
+            long sequence = top.getSequence();
+
+            // Fill the best bid completely, the next level becomes the bid
+            engine.addOrderTicks(false, "ORDER1", 100, 15000L);
+            engine.getTopOfBook("ORDER1", top);
+            assertEquals(14900L, top.getBidPriceTicks(), "Filled bid should be replaced by the next level");
+            assertEquals(50, top.getBidQuantity());
+            assertTrue(top.getSequence() > sequence, "Sequence should advance on every publish");
+        }
+
+        @Test
+        @DisplayName("Should report the whole best level, not just its first order")
+        public void testTopOfBookSumsBestLevel() {
+            engine.addOrderTicks(true, "ORDER3", 100, 15000L);
+            engine.addOrderTicks(true, "ORDER3", 100, 15000L);
+            engine.addOrderTicks(true, "ORDER3", 40, 14900L);
+
+            TopOfBook top = new TopOfBook();
+            engine.getTopOfBook("ORDER3", top);
+            assertEquals(15000L, top.getBidPriceTicks());
+            assertEquals(200, top.getBidQuantity(), "Both orders at the best bid should count");
+
+            // Partly fill the first order, the level keeps the rest of both
+            engine.addOrderTicks(false, "ORDER3", 30, 15000L);
+            engine.getTopOfBook("ORDER3", top);
+            assertEquals(170, top.getBidQuantity(), "Partial fill should reduce the level total");
+        }
+
+        @Test
+        @DisplayName("Should report an empty side as zero")
+        public void testEmptySide() {
+            engine.addOrderTicks(true, "ORDER2", 100, 15000L);
+            engine.addOrderTicks(false, "ORDER2", 100, 14000L);
+
+            TopOfBook top = new TopOfBook();
+            engine.getTopOfBook("ORDER2", top);
+            assertFalse(top.hasBid(), "Fully matched book should have no bid");
+            assertFalse(top.hasAsk(), "Fully matched book should have no ask");
+            assertEquals(0L, top.getBidPriceTicks());
+            assertEquals(0L, top.getAskPriceTicks());
+        }
+    }
+
+    @Nested
+    @DisplayName("Market Depth Tests")
+    class MarketDepthTests {
+        @Test
+        @DisplayName("Should aggregate quantity and order count per level, best first")
+        public void testDepthAggregates() {
+            engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+            engine.addOrderTicks(true, "ORDER1", 200, 15000L);
+            engine.addOrderTicks(true, "ORDER1", 50, 14900L);
+            engine.addOrderTicks(true, "ORDER1", 70, 14800L);
+
+            DepthSnapshot depth = new DepthSnapshot(2);
+            assertEquals(2, engine.getDepth("ORDER1", true, depth), "Snapshot should stop at its capacity");
+            assertEquals(15000L, depth.getPriceTicks(0), "Best bid level should be first");
+            assertEquals(300, depth.getQuantity(0));
+            assertEquals(2, depth.getOrderCount(0));
+            assertEquals(14900L, depth.getPriceTicks(1));
+            assertEquals(50, depth.getQuantity(1));
+            assertEquals(1, depth.getOrderCount(1));
+            assertEquals(0, engine.getDepth("ORDER1", false, depth), "Ask side should be empty");
+        }
+
+        @Test
+        @DisplayName("Should reduce levels on partial and full fills")
+        public void testDepthFollowsFills() {
+            engine.addOrderTicks(true, "ORDER1", 100, 15000L);
+            engine.addOrderTicks(true, "ORDER1", 200, 15000L);
+            engine.addOrderTicks(true, "ORDER1", 50, 14900L);
+
+            // Fills the first order and 30 of the second
+            engine.addOrderTicks(false, "ORDER1", 130, 15000L);
+
+            DepthSnapshot depth = new DepthSnapshot(5);
+            assertEquals(2, engine.getDepth("ORDER1", true, depth));
+            assertEquals(170, depth.getQuantity(0), "Level should lose the filled quantity");
+            assertEquals(1, depth.getOrderCount(0), "Filled order should leave the level");
+
+            // Sweeps the rest of the bid side
+            engine.addOrderTicks(false, "ORDER1", 220, 14900L);
+            assertEquals(0, engine.getDepth("ORDER1", true, depth), "Emptied levels should disappear");
+            assertEquals(0, engine.getDepth("ORDER1", false, depth), "Fully matched sell should not rest");
+        }
+
+        @Test
+        @DisplayName("Should refuse a reduce the level never recorded")
+        public void testReduceOfMissingLevel() {
+            MarketDepth depth = new MarketDepth(true);
+            depth.addOrder(15000L, 100);
+
+            assertThrows(IllegalStateException.class, () -> depth.reduce(14900L, 10, false),
+                    "No level was recorded at this price");
+            assertThrows(IllegalStateException.class, () -> depth.reduce(15000L, 200, true),
+                    "More than the level holds cannot leave it");
+            assertEquals(100, depth.getQuantity(15000L), "Recorded level should be untouched");
+        }
+    }
+
+    @Nested
+    @DisplayName("Order Pool Tests")
+    class OrderPoolTests {
+        @Test
+        @DisplayName("Should recycle filled orders instead of allocating new ones")
+        public void testFilledOrdersAreRecycled() throws Exception {
+            java.lang.reflect.Field field = TradingEngine.class.getDeclaredField("orderPool");
+            field.setAccessible(true);
+            OrderPool pool = (OrderPool) field.get(engine);
+
+            for (int i = 0; i < 10000; i++) {
+                engine.addOrder(true, "ORDER1", 100, 150.0);
+                engine.addOrder(false, "ORDER1", 100, 150.0);
+            }
+
+            assertNull(orderBook.getBuyOrders("ORDER1").peek(), "All buy orders should be matched");
+            assertNull(orderBook.getSellOrders("ORDER1").peek(), "All sell orders should be matched");
+            assertTrue(pool.getCreatedCount() < 1000,
+                    "Most orders should come from the pool, created " + pool.getCreatedCount());
+        }
+
+        @Test
+        @DisplayName("Should not hand out a resting order again")
+        public void testRestingOrdersAreNotReused() {
+            engine.addOrder(true, "ORDER2", 100, 100.0);
+            Order resting = orderBook.getBuyOrders("ORDER2").peek();
+
+            for (int i = 0; i < 1000; i++) {
+                engine.addOrder(true, "ORDER3", 100, 150.0);
+                engine.addOrder(false, "ORDER3", 100, 150.0);
+            }
+
+            assertSame(resting, orderBook.getBuyOrders("ORDER2").peek(), "Resting order should stay in its book");
+            assertEquals(100.0, resting.getPrice(), "Resting order should keep its price");
+            assertEquals(100, resting.getQuantity(), "Resting order should keep its quantity");
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch Submission Tests")
+    class BatchTests {
+        @Test
+        @DisplayName("Should match a crossed batch to completion, past one matching slice")
+        public void testBatchMatchesToCompletion() {
+            int symbolId = engine.registerSymbol("ORDER1");
+            int count = 1001;
+            boolean[] isBuy = new boolean[count];
+            int[] symbolIds = new int[count];
+            int[] quantities = new int[count];
+            long[] priceTicks = new long[count];
+            for (int i = 0; i < count; i++) {
+                symbolIds[i] = symbolId;
+                quantities[i] = 1;
+                priceTicks[i] = 15000L + i % 10;
+            }
+            // The last entry crosses all 1000 resting sells at once
+            isBuy[count - 1] = true;
+            quantities[count - 1] = 1000;
+            priceTicks[count - 1] = 15100L;
+            long[] ids = new long[count];
+
+            engine.addOrders(isBuy, symbolIds, quantities, priceTicks, count, ids);
+
+            assertEquals(0, engine.getOpenQuantity(ids[count - 1]), "Buy should fill in one call");
+            assertNull(orderBook.getSellOrdersByIndex(symbolId).peek(), "No sell should be left crossed");
+        }
+
+        @Test
+        @DisplayName("Should insert a batch in array order and match each symbol once")
+        public void testBatchMatchesPerSymbol() {
+            int first = engine.registerSymbol("ORDER1");
+            int second = engine.registerSymbol("ORDER2");
+            boolean[] isBuy = {true, true, false, true, false};
+            int[] symbolIds = {first, first, first, second, second};
+            int[] quantities = {100, 50, 120, 70, 30};
+            long[] priceTicks = {15000L, 15000L, 14900L, 20000L, 20100L};
+            long[] ids = new long[5];
+
+            assertEquals(5, engine.addOrders(isBuy, symbolIds, quantities, priceTicks, 5, ids),
+                    "Every order should be accepted");
+
+            assertEquals(0, engine.getOpenQuantity(ids[0]), "Earlier buy should fill first");
+            assertEquals(30, engine.getOpenQuantity(ids[1]), "Later buy should fill only what is left");
+            assertEquals(0, engine.getOpenQuantity(ids[2]), "Sell should be filled");
+            assertEquals(70, engine.getOpenQuantity(ids[3]), "Non-crossing buy should rest");
+            assertEquals(30, engine.getOpenQuantity(ids[4]), "Non-crossing sell should rest");
+            assertTrue(ids[0] < ids[1] && ids[1] < ids[2], "Ids should follow array order");
+        }
+
+        @Test
+        @DisplayName("Should match every symbol of a batch that touches many symbols")
+        public void testBatchAcrossManySymbols() {
+            int symbolCount = 40;
+            int count = symbolCount * 2;
+            boolean[] isBuy = new boolean[count];
+            int[] symbolIds = new int[count];
+            int[] quantities = new int[count];
+            long[] priceTicks = new long[count];
+            for (int i = 0; i < symbolCount; i++) {
+                int symbolId = engine.registerSymbol("MANY" + i);
+                // A resting buy, then a sell that crosses it
+                isBuy[2 * i] = true;
+                symbolIds[2 * i] = symbolId;
+                symbolIds[2 * i + 1] = symbolId;
+                quantities[2 * i] = 100;
+                quantities[2 * i + 1] = 100;
+                priceTicks[2 * i] = 15000L;
+                priceTicks[2 * i + 1] = 15000L;
+            }
+            long[] ids = new long[count];
+
+            // Twice, so the second call reuses what the first one grew
+            for (int round = 0; round < 2; round++) {
+                assertEquals(count, engine.addOrders(isBuy, symbolIds, quantities, priceTicks, count, ids));
+                for (int i = 0; i < count; i++) {
+                    assertEquals(0, engine.getOpenQuantity(ids[i]), "Order " + i + " should be filled");
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should reject invalid entries and keep the rest")
+        public void testBatchRejectsInvalid() {
+            int symbolId = engine.registerSymbol("ORDER1");
+            long[] ids = new long[3];
+
+            int accepted = engine.addOrders(new boolean[] {true, true, false},
+                    new int[] {symbolId, -1, symbolId}, new int[] {100, 100, 0},
+                    new long[] {15000L, 15000L, 15000L}, 3, ids);
+
+            assertEquals(1, accepted, "Only the valid order should be accepted");
+            assertEquals(100, engine.getOpenQuantity(ids[0]), "Valid order should rest");
+            assertEquals(TradingEngine.REJECTED, ids[1], "Unknown symbol should be rejected");
+            assertEquals(TradingEngine.REJECTED, ids[2], "Zero quantity should be rejected");
+        }
+    }
+
+    @Nested
+    @DisplayName("Trade Stream Tests")
+    class TradeStreamTests {
+        @Test
+        @DisplayName("Should report who traded with whom at the resting price")
+        public void testTradesReported() {
+            java.util.List<long[]> trades = new java.util.ArrayList<>();
+            long firstSell;
+            long secondSell;
+            long buy;
+            try (TradeStream stream = new TradeStream(4)) {
+                stream.subscribe(trade -> trades.add(new long[] {trade.getSequence(), trade.getBuyOrderId(),
+                        trade.getSellOrderId(), trade.getPriceTicks(), trade.getQuantity(), trade.getSymbolId()}));
+                engine.setTradeStream(stream);
+                int symbolId = engine.registerSymbol("ORDER1");
+
+                firstSell = engine.addOrderTicks(false, symbolId, 30, 15000L);
+                secondSell = engine.addOrderTicks(false, symbolId, 30, 15010L);
+                buy = engine.addOrderTicks(true, symbolId, 50, 15100L);
+
+                // Both orders rest before matching, the buy rested first so its price applies
+                long[] ids = new long[2];
+                engine.addOrders(new boolean[] {true, false}, new int[] {symbolId, symbolId},
+                        new int[] {10, 20}, new long[] {14000L, 13000L}, 2, ids);
+
+                // More fills than the ring holds, the matcher must wait for the listener
+                for (int i = 0; i < 20; i++) {
+                    engine.addOrderTicks(true, symbolId, 1, 20000L);
+                }
+                stream.flush();
+                assertEquals(23, stream.getTradeCount(), "Every fill should be published");
+            }
+
+            assertEquals(23, trades.size(), "Every fill should reach the listener");
+            assertArrayEquals(new long[] {0, buy, firstSell, 15000L, 30, 0}, trades.get(0), "Fill against the best ask");
+            assertArrayEquals(new long[] {1, buy, secondSell, 15010L, 20, 0}, trades.get(1), "Fill at the next level");
+            assertEquals(14000L, trades.get(2)[3], "Resting buy should set the price");
+            assertEquals(10, trades.get(2)[4], "Buy quantity should trade");
+            for (int i = 0; i < trades.size(); i++) {
+                assertEquals(i, trades.get(i)[0], "Trades should arrive in sequence");
+            }
+        }
+
+        @Test
+        @DisplayName("Should keep matching after the trade stream is closed")
+        public void testFillsAfterCloseDoNotBlock() throws InterruptedException {
+            TradeStream stream = new TradeStream(4);
+            engine.setTradeStream(stream);
+            stream.close();
+            int symbolId = engine.registerSymbol("ORDER1");
+
+            // More fills than the ring holds, with no dispatch thread left to free it
+            Thread matcher = new Thread(() -> {
+                for (int i = 0; i < 20; i++) {
+                    engine.addOrderTicks(false, symbolId, 1, 15000L);
+                    engine.addOrderTicks(true, symbolId, 1, 15000L);
+                }
+            });
+            matcher.setDaemon(true);
+            matcher.start();
+            matcher.join(10_000);
+
+            assertFalse(matcher.isAlive(), "Fills after close should be dropped, not wait for the stream");
+            assertNull(orderBook.getBuyOrdersByIndex(symbolId).peek(), "Orders should still match");
+        }
+    }
+
+    private static OrderBook bookOf(TradingEngine tradingEngine) {
+        try {
+            java.lang.reflect.Field field = TradingEngine.class.getDeclaredField("orderBook");
+            field.setAccessible(true);
+            return (OrderBook) field.get(tradingEngine);
+        } catch (Exception e) {
+            fail("Could not access orderBook: " + e.getMessage());
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
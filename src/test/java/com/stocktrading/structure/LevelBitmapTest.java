@@ -0,0 +1,58 @@
+package com.stocktrading.structure;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LevelBitmapTest {
+
+    @Test
+    @DisplayName("Should find set levels across words and layers")
+    public void testNextSetBit() {
+        LevelBitmap bitmap = new LevelBitmap(500_000);
+        assertEquals(-1, bitmap.nextSetBit(0), "Empty bitmap should have no set level");
+
+        bitmap.set(499_999);
+        bitmap.set(70);
+        bitmap.set(64);
+        bitmap.set(3);
+
+        assertEquals(3, bitmap.nextSetBit(0));
+        assertEquals(64, bitmap.nextSetBit(4), "Search should move to the next word");
+        assertEquals(70, bitmap.nextSetBit(65));
+        assertEquals(499_999, bitmap.nextSetBit(71), "Search should skip empty words through the summary layers");
+        assertEquals(-1, bitmap.nextSetBit(500_000));
+
+        bitmap.clear(64);
+        bitmap.clear(70);
+        assertEquals(499_999, bitmap.nextSetBit(4), "Cleared levels should be skipped");
+        assertTrue(bitmap.get(3));
+        assertFalse(bitmap.get(64));
+    }
+
+    @Test
+    @DisplayName("Should agree with a plain bitset under random updates")
+    public void testAgainstBitSet() {
+        int size = 70_000;
+        LevelBitmap bitmap = new LevelBitmap(size);
+        BitSet expected = new BitSet(size);
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            int index = random.nextInt(size);
+            if (random.nextBoolean()) {
+                bitmap.set(index);
+                expected.set(index);
+            } else {
+                bitmap.clear(index);
+                expected.clear(index);
+            }
+            int from = random.nextInt(size);
+            assertEquals(expected.nextSetBit(from), bitmap.nextSetBit(from), "Next set level from " + from);
+        }
+    }
+}
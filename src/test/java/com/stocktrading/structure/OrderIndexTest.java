@@ -0,0 +1,103 @@
+package com.stocktrading.structure;
+
+import com.stocktrading.model.Instrument;
+import com.stocktrading.model.Order;
+import com.stocktrading.model.TickSize;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderIndexTest {
+    private final Instrument instrument = new Instrument(0, "ORDER1", TickSize.CENT);
+
+    private Order order(long id) {
+        return new Order(id, true, instrument, 100, 15000, id);
+    }
+
+    @Test
+    @DisplayName("Should find, remove and forget orders by id")
+    public void testPutGetRemove() {
+        OrderIndex index = new OrderIndex(16);
+        Order first = order(1);
+        Order second = order(2);
+        index.put(1, first);
+        index.put(2, second);
+
+        assertSame(first, index.get(1), "Should find the first order");
+        assertSame(second, index.get(2), "Should find the second order");
+        assertNull(index.get(3), "Unknown id should not be found");
+
+        assertSame(first, index.remove(1), "Remove should return the mapped order");
+        assertNull(index.get(1), "Removed id should not be found");
+        assertNull(index.remove(1), "Second remove should find nothing");
+        assertSame(second, index.get(2), "Other ids should be unaffected");
+    }
+
+    @Test
+    @DisplayName("Should probe past a slot that carries the id but not the expected order")
+    public void testConditionalOpsSkipStaleSlot() {
+        OrderIndex index = new OrderIndex(16);
+        Order stale = order(1);
+        Order live = order(1);
+        Order replacement = order(1);
+        // Two slots with the same id, as while an earlier entry is still being removed
+        index.put(1, stale);
+        index.put(1, live);
+
+        assertTrue(index.replace(1, live, replacement), "Replace should reach the entry behind the stale slot");
+        assertTrue(index.remove(1, replacement), "Remove should reach the entry behind the stale slot");
+        assertFalse(index.remove(1, live), "Replaced order should no longer be indexed");
+        assertSame(stale, index.get(1), "Stale slot should be left alone");
+    }
+
+    @Test
+    @DisplayName("Should reuse removed slots and spill past a full probe window")
+    public void testChurnAndOverflow() {
+        OrderIndex index = new OrderIndex(8);
+
+        // Far more ids than slots over time, but few live at once
+        for (long id = 1; id <= 10_000; id++) {
+            index.put(id, order(id));
+            if (id > 4) {
+                assertNotNull(index.remove(id - 4), "Id " + (id - 4) + " should still be indexed");
+            }
+        }
+        for (long id = 9_997; id <= 10_000; id++) {
+            assertEquals(id, index.get(id).getOrderId(), "Live ids should be found after churn");
+        }
+
+        // More live ids than slots go to the overflow index
+        for (long id = 20_001; id <= 20_100; id++) {
+            index.put(id, order(id));
+        }
+        for (long id = 20_001; id <= 20_100; id++) {
+            assertEquals(id, index.get(id).getOrderId(), "Every id should be found, in the table or overflow");
+        }
+    }
+
+    @Test
+    @DisplayName("Should replace and remove entries that spilled to the overflow")
+    public void testOverflowReplaceAndRemove() {
+        OrderIndex index = new OrderIndex(8);
+        Order[] orders = new Order[101];
+        // Sixteen slots, so most of these spill
+        for (int id = 1; id <= 100; id++) {
+            orders[id] = order(id);
+            index.put(id, orders[id]);
+        }
+
+        for (int id = 1; id <= 100; id++) {
+            Order replacement = order(id);
+            assertFalse(index.replace(id, order(id), replacement), "Replace should need the mapped order");
+            assertTrue(index.replace(id, orders[id], replacement), "Id " + id + " should be replaced");
+            assertFalse(index.remove(id, orders[id]), "Replaced order should no longer be indexed");
+            assertTrue(index.remove(id, replacement), "Id " + id + " should be removed");
+            assertNull(index.get(id), "Removed id should not be found");
+        }
+        for (int id = 1; id <= 100; id++) {
+            index.put(id, orders[id]);
+            assertSame(orders[id], index.remove(id), "Id " + id + " should be indexed again after removal");
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.stocktrading.structure;
+
+import com.stocktrading.model.Instrument;
+import com.stocktrading.model.Order;
+import com.stocktrading.model.TickSize;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderListRemoveTest {
+    private final Instrument instrument = new Instrument(0, "ORDER1", TickSize.CENT);
+    private long nextId = 1;
+
+    private Order buy(long priceTicks) {
+        long id = nextId++;
+        return new Order(id, true, instrument, 100, priceTicks, id);
+    }
+
+    private List<OrderList> allBuyLists() {
+        List<OrderList> lists = new ArrayList<>();
+        lists.add(new LinkedOrderList(true));
+        lists.add(new SkipListOrderList(true));
+        lists.add(new PriceLadderOrderList(true, 1, 100_000));
+        return lists;
+    }
+
+    @Test
+    @DisplayName("Should remove orders from the middle, front and back of every list")
+    public void testRemoveAnywhere() {
+        for (OrderList list : allBuyLists()) {
+            String name = list.getClass().getSimpleName();
+            Order best = buy(15200);
+            Order middle = buy(15100);
+            Order worst = buy(15000);
+            list.add(middle);
+            list.add(worst);
+            list.add(best);
+
+            assertTrue(list.remove(middle), name + ": middle order should be removed");
+            assertFalse(list.remove(middle), name + ": second remove should fail");
+            assertTrue(list.remove(best), name + ": best order should be removed");
+            assertSame(worst, list.peek(), name + ": remaining order should be the head");
+            assertTrue(list.remove(worst), name + ": last order should be removed");
+            assertTrue(list.isEmpty(), name + ": list should be empty");
+        }
+    }
+
+    @Test
+    @DisplayName("Should let only one of remove and removeHead take an order")
+    public void testRemoveRacesRemoveHead() {
+        for (OrderList list : allBuyLists()) {
+            Order order = buy(15000);
+            list.add(order);
+            assertSame(order, list.removeHead());
+            assertFalse(list.remove(order), list.getClass().getSimpleName() + ": removed head should not be removed again");
+        }
+    }
+
+    @Test
+    @DisplayName("Should not lose inserts made next to orders being removed")
+    public void testConcurrentInsertAndRemove() throws InterruptedException {
+        final LinkedOrderList list = new LinkedOrderList(true);
+        final int threads = 4;
+        final int perThread = 2000;
+        final Order[][] added = new Order[threads][perThread];
+        for (int t = 0; t < threads; t++) {
+            for (int j = 0; j < perThread; j++) {
+                added[t][j] = buy(1000 + (j * 13 + t) % 200);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            executor.submit(() -> {
+                try {
+                    for (int j = 0; j < perThread; j++) {
+                        list.add(added[thread][j]);
+                        // Remove every other order shortly after adding it
+                        if (j % 2 == 1) {
+                            assertTrue(list.remove(added[thread][j - 1]), "Own earlier order should still be there");
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS), "All threads should finish");
+        executor.shutdown();
+
+        int count = 0;
+        long lastPrice = Long.MAX_VALUE;
+        long lastSequence = -1;
+        Order order;
+        while ((order = list.removeHead()) != null) {
+            assertTrue(order.getPriceTicks() <= lastPrice, "Orders should come out best price first");
+            if (order.getPriceTicks() == lastPrice) {
+                assertTrue(order.getSequence() > lastSequence, "Equal prices should come out in arrival order");
+            }
+            lastPrice = order.getPriceTicks();
+            lastSequence = order.getSequence();
+            count++;
+        }
+        assertEquals(threads * perThread / 2, count, "Exactly the orders not removed should remain");
+    }
+}